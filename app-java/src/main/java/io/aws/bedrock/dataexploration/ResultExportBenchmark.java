@@ -0,0 +1,118 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+import io.aws.bedrock.dataexploration.service.arrow.ArrowStreamExporter;
+import io.aws.bedrock.dataexploration.service.queryexecution.JdbcResultReader;
+import io.aws.bedrock.dataexploration.service.queryexecution.ResultBufferFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Compares the throughput of the JSON ({@code QueryResult} + Jackson) and Arrow IPC export paths for a
+ * query against a JDBC data source, e.g.:
+ *
+ * <pre>
+ * java -cp app.jar -Dloader.main=io.aws.bedrock.dataexploration.ResultExportBenchmark \
+ *     org.springframework.boot.loader.PropertiesLauncher \
+ *     jdbc:postgresql://localhost:5432/pagila postgres secret "SELECT * FROM rental" 10
+ * </pre>
+ */
+public class ResultExportBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 2;
+
+    public static void main(String[] args) throws Exception {
+        if (args == null || args.length < 4) {
+            System.out.println("Usage: ResultExportBenchmark <jdbcUrl> <user> <password> <query> [iterations]");
+            return;
+        }
+        String url = args[0];
+        String user = args[1];
+        String password = args[2];
+        String query = args[3];
+        int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        DataExplorationProperties dataExplorationProperties = new DataExplorationProperties();
+        ResultBufferFactory resultBufferFactory = new ResultBufferFactory(dataExplorationProperties);
+        ArrowStreamExporter arrowStreamExporter = new ArrowStreamExporter(dataExplorationProperties);
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                runJson(connection, query, objectMapper, resultBufferFactory);
+                runArrow(connection, query, arrowStreamExporter);
+            }
+            report("json", iterations, () -> runJson(connection, query, objectMapper, resultBufferFactory));
+            report("arrow", iterations, () -> runArrow(connection, query, arrowStreamExporter));
+        } finally {
+            arrowStreamExporter.destroy();
+        }
+    }
+
+    private static void report(String name, int iterations, ExportRun run) throws Exception {
+        long rows = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long[] result = run.execute();
+            rows += result[0];
+            bytes += result[1];
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-5s: %d iterations, %.0f rows/s, %.1f MB/s, %d bytes/iteration%n", name, iterations,
+                rows / seconds, bytes / seconds / (1024 * 1024), bytes / iterations);
+    }
+
+    private static long[] runJson(Connection connection, String query, ObjectMapper objectMapper,
+            ResultBufferFactory resultBufferFactory) throws SQLException, IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            QueryResult queryResult = JdbcResultReader.readQueryResult(rs, resultBufferFactory.newResultBuffer());
+            try (ResultBuffer values = queryResult.getValues()) {
+                objectMapper.writeValue(outputStream, queryResult);
+                return new long[]{values.size(), outputStream.count};
+            }
+        }
+    }
+
+    private static long[] runArrow(Connection connection, String query, ArrowStreamExporter arrowStreamExporter)
+            throws SQLException, IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            long rows = arrowStreamExporter.writeResultSet(rs, Map.of(), outputStream);
+            return new long[]{rows, outputStream.count};
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportRun {
+        long[] execute() throws Exception;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
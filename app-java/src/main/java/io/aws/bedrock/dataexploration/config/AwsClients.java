@@ -0,0 +1,23 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.config;
+
+import software.amazon.awssdk.core.client.builder.SdkClientBuilder;
+
+import java.net.URI;
+
+public final class AwsClients {
+
+    private AwsClients() {
+    }
+
+    /**
+     * Points the client at {@code endpoint} if one is configured, otherwise leaves the regional AWS endpoint.
+     */
+    public static <B extends SdkClientBuilder<B, ?>> B withEndpoint(B builder, String endpoint) {
+        if (endpoint != null && !endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder;
+    }
+}
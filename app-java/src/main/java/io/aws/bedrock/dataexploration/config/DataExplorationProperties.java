@@ -4,11 +4,59 @@ package io.aws.bedrock.dataexploration.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 @ConfigurationProperties("bedrock.data.exploration")
 public class DataExplorationProperties {
 
     private String bedrockProxy;
     private String dynamoTableName;
+    private int arrowBatchSize = 4096;
+    private String jobTableName;
+    private int jobWorkerThreads = 4;
+    private int jobQueueCapacity = 100;
+    private String jobResultBucket;
+    private String jobResultDirectory;
+    private String instanceId;
+    private int jobRetentionHours = 24;
+    private long resultBufferHeapBytes = 16L * 1024 * 1024;
+    private String resultBufferDirectory = System.getProperty("java.io.tmpdir") + "/data-exploration-results";
+    private int resultDisplayRows = 1000;
+    private int postgresPoolSize = 10;
+    private Duration postgresReplicaMaxLag = Duration.ofSeconds(30);
+    private boolean postgresPrimaryFallback = true;
+    private boolean warmUpEnabled = true;
+    private int warmUpTimeoutSeconds = 60;
+    private boolean exitAfterStartup = false;
+    private int bulkheadSharedCapacity = 8;
+    private Map<String, BulkheadSettings> bulkheads = new HashMap<>();
+    private String bedrockEndpoint;
+    private String dynamoDbEndpoint;
+    private String secretsManagerEndpoint;
+    private boolean neptuneEncryption = true;
+    private boolean questionCacheEnabled = true;
+    private double questionCacheSimilarityThreshold = 0.8;
+    private int questionCacheMaxEntriesPerDatabase = 1000;
+    private double questionCacheVerificationRate = 0.05;
+    private String bedrockModelId = "anthropic.claude-v2";
+    private boolean bedrockPromptCaching = false;
+    private Duration requestTimeout = Duration.ofMinutes(2);
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    private int routingCandidates = 3;
+    private double routingMinScore = 0.1;
+    private double routingMinScoreRatio = 0.5;
+    private boolean answerCacheEnabled = true;
+    private Duration answerCacheTtl = Duration.ofMinutes(10);
+    private Duration answerCacheRefreshAhead = Duration.ofMinutes(2);
+    private int answerCacheTopQuestions = 20;
+    private int answerCacheMinAsks = 3;
+    private long answerCacheMaxBytes = 64L * 1024 * 1024;
+    private Duration answerCachePopularityHalfLife = Duration.ofHours(1);
+    private Duration answerRefreshBackoff = Duration.ofMinutes(10);
+    private int answerRefreshThreads = 4;
+    private Map<String, AnswerRefreshSettings> answerRefresh = new HashMap<>();
 
     public String getBedrockProxy() {
         return bedrockProxy;
@@ -25,4 +73,496 @@ public class DataExplorationProperties {
     public void setDynamoTableName(String dynamoTableName) {
         this.dynamoTableName = dynamoTableName;
     }
+
+    public int getArrowBatchSize() {
+        return arrowBatchSize;
+    }
+
+    public void setArrowBatchSize(int arrowBatchSize) {
+        this.arrowBatchSize = arrowBatchSize;
+    }
+
+    public String getJobTableName() {
+        return jobTableName;
+    }
+
+    public void setJobTableName(String jobTableName) {
+        this.jobTableName = jobTableName;
+    }
+
+    public int getJobWorkerThreads() {
+        return jobWorkerThreads;
+    }
+
+    public void setJobWorkerThreads(int jobWorkerThreads) {
+        this.jobWorkerThreads = jobWorkerThreads;
+    }
+
+    public int getJobQueueCapacity() {
+        return jobQueueCapacity;
+    }
+
+    public void setJobQueueCapacity(int jobQueueCapacity) {
+        this.jobQueueCapacity = jobQueueCapacity;
+    }
+
+    /**
+     * S3 bucket to keep finished job results in.
+     */
+    public String getJobResultBucket() {
+        return jobResultBucket;
+    }
+
+    public void setJobResultBucket(String jobResultBucket) {
+        this.jobResultBucket = jobResultBucket;
+    }
+
+    /**
+     * Directory to keep finished job results in, if there's no {@code jobResultBucket}. It must be durable and
+     * shared by all instances.
+     */
+    public String getJobResultDirectory() {
+        return jobResultDirectory;
+    }
+
+    public void setJobResultDirectory(String jobResultDirectory) {
+        this.jobResultDirectory = jobResultDirectory;
+    }
+
+    /**
+     * Name of this instance in the jobs it runs; its host name if not set.
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public int getJobRetentionHours() {
+        return jobRetentionHours;
+    }
+
+    public void setJobRetentionHours(int jobRetentionHours) {
+        this.jobRetentionHours = jobRetentionHours;
+    }
+
+    public long getResultBufferHeapBytes() {
+        return resultBufferHeapBytes;
+    }
+
+    public void setResultBufferHeapBytes(long resultBufferHeapBytes) {
+        this.resultBufferHeapBytes = resultBufferHeapBytes;
+    }
+
+    public String getResultBufferDirectory() {
+        return resultBufferDirectory;
+    }
+
+    public void setResultBufferDirectory(String resultBufferDirectory) {
+        this.resultBufferDirectory = resultBufferDirectory;
+    }
+
+    public int getResultDisplayRows() {
+        return resultDisplayRows;
+    }
+
+    public void setResultDisplayRows(int resultDisplayRows) {
+        this.resultDisplayRows = resultDisplayRows;
+    }
+
+    public int getPostgresPoolSize() {
+        return postgresPoolSize;
+    }
+
+    public void setPostgresPoolSize(int postgresPoolSize) {
+        this.postgresPoolSize = postgresPoolSize;
+    }
+
+    public Duration getPostgresReplicaMaxLag() {
+        return postgresReplicaMaxLag;
+    }
+
+    public void setPostgresReplicaMaxLag(Duration postgresReplicaMaxLag) {
+        this.postgresReplicaMaxLag = postgresReplicaMaxLag;
+    }
+
+    public boolean isPostgresPrimaryFallback() {
+        return postgresPrimaryFallback;
+    }
+
+    public void setPostgresPrimaryFallback(boolean postgresPrimaryFallback) {
+        this.postgresPrimaryFallback = postgresPrimaryFallback;
+    }
+
+    public boolean isWarmUpEnabled() {
+        return warmUpEnabled;
+    }
+
+    public void setWarmUpEnabled(boolean warmUpEnabled) {
+        this.warmUpEnabled = warmUpEnabled;
+    }
+
+    public int getWarmUpTimeoutSeconds() {
+        return warmUpTimeoutSeconds;
+    }
+
+    public void setWarmUpTimeoutSeconds(int warmUpTimeoutSeconds) {
+        this.warmUpTimeoutSeconds = warmUpTimeoutSeconds;
+    }
+
+    public boolean isExitAfterStartup() {
+        return exitAfterStartup;
+    }
+
+    public void setExitAfterStartup(boolean exitAfterStartup) {
+        this.exitAfterStartup = exitAfterStartup;
+    }
+
+    public int getBulkheadSharedCapacity() {
+        return bulkheadSharedCapacity;
+    }
+
+    public void setBulkheadSharedCapacity(int bulkheadSharedCapacity) {
+        this.bulkheadSharedCapacity = bulkheadSharedCapacity;
+    }
+
+    /**
+     * Bulkhead settings keyed by database name or by {@code DbType} (e.g. {@code ATHENA}). Unset fields fall
+     * back from the database name, to the type, to the built-in defaults.
+     */
+    public Map<String, BulkheadSettings> getBulkheads() {
+        return bulkheads;
+    }
+
+    public void setBulkheads(Map<String, BulkheadSettings> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Overrides the Bedrock runtime endpoint, e.g. to point at a local fake for load tests.
+     */
+    public String getBedrockEndpoint() {
+        return bedrockEndpoint;
+    }
+
+    public void setBedrockEndpoint(String bedrockEndpoint) {
+        this.bedrockEndpoint = bedrockEndpoint;
+    }
+
+    public String getDynamoDbEndpoint() {
+        return dynamoDbEndpoint;
+    }
+
+    public void setDynamoDbEndpoint(String dynamoDbEndpoint) {
+        this.dynamoDbEndpoint = dynamoDbEndpoint;
+    }
+
+    public String getSecretsManagerEndpoint() {
+        return secretsManagerEndpoint;
+    }
+
+    public void setSecretsManagerEndpoint(String secretsManagerEndpoint) {
+        this.secretsManagerEndpoint = secretsManagerEndpoint;
+    }
+
+    public boolean isNeptuneEncryption() {
+        return neptuneEncryption;
+    }
+
+    public void setNeptuneEncryption(boolean neptuneEncryption) {
+        this.neptuneEncryption = neptuneEncryption;
+    }
+
+    public boolean isQuestionCacheEnabled() {
+        return questionCacheEnabled;
+    }
+
+    public void setQuestionCacheEnabled(boolean questionCacheEnabled) {
+        this.questionCacheEnabled = questionCacheEnabled;
+    }
+
+    public double getQuestionCacheSimilarityThreshold() {
+        return questionCacheSimilarityThreshold;
+    }
+
+    public void setQuestionCacheSimilarityThreshold(double questionCacheSimilarityThreshold) {
+        this.questionCacheSimilarityThreshold = questionCacheSimilarityThreshold;
+    }
+
+    public int getQuestionCacheMaxEntriesPerDatabase() {
+        return questionCacheMaxEntriesPerDatabase;
+    }
+
+    public void setQuestionCacheMaxEntriesPerDatabase(int questionCacheMaxEntriesPerDatabase) {
+        this.questionCacheMaxEntriesPerDatabase = questionCacheMaxEntriesPerDatabase;
+    }
+
+    public double getQuestionCacheVerificationRate() {
+        return questionCacheVerificationRate;
+    }
+
+    public void setQuestionCacheVerificationRate(double questionCacheVerificationRate) {
+        this.questionCacheVerificationRate = questionCacheVerificationRate;
+    }
+
+    public String getBedrockModelId() {
+        return bedrockModelId;
+    }
+
+    public void setBedrockModelId(String bedrockModelId) {
+        this.bedrockModelId = bedrockModelId;
+    }
+
+    /**
+     * Marks each database's system prompt as cacheable. Only enable for models that support prompt caching on
+     * Bedrock, which reject the cache markers otherwise.
+     */
+    public boolean isBedrockPromptCaching() {
+        return bedrockPromptCaching;
+    }
+
+    public void setBedrockPromptCaching(boolean bedrockPromptCaching) {
+        this.bedrockPromptCaching = bedrockPromptCaching;
+    }
+
+    /**
+     * How long a question asked over HTTP may take before its model call or query is cancelled.
+     */
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * How long a streamed (Arrow) export may take, including generating its query, before it's cancelled.
+     */
+    public Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(Duration streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
+    /**
+     * How many of the best matching databases a question without a database name is asked of, in parallel.
+     */
+    public int getRoutingCandidates() {
+        return routingCandidates;
+    }
+
+    public void setRoutingCandidates(int routingCandidates) {
+        this.routingCandidates = routingCandidates;
+    }
+
+    /**
+     * Rejects a question without a database name when even the best matching schema scores below this, e.g.
+     * because the question shares no words with any schema.
+     */
+    public double getRoutingMinScore() {
+        return routingMinScore;
+    }
+
+    public void setRoutingMinScore(double routingMinScore) {
+        this.routingMinScore = routingMinScore;
+    }
+
+    /**
+     * Leaves out candidate databases whose schema matches the question less than this share of the best match.
+     */
+    public double getRoutingMinScoreRatio() {
+        return routingMinScoreRatio;
+    }
+
+    public void setRoutingMinScoreRatio(double routingMinScoreRatio) {
+        this.routingMinScoreRatio = routingMinScoreRatio;
+    }
+
+    public boolean isAnswerCacheEnabled() {
+        return answerCacheEnabled;
+    }
+
+    public void setAnswerCacheEnabled(boolean answerCacheEnabled) {
+        this.answerCacheEnabled = answerCacheEnabled;
+    }
+
+    /**
+     * How long a precomputed answer to a popular question is served before it must be recomputed.
+     */
+    public Duration getAnswerCacheTtl() {
+        return answerCacheTtl;
+    }
+
+    public void setAnswerCacheTtl(Duration answerCacheTtl) {
+        this.answerCacheTtl = answerCacheTtl;
+    }
+
+    /**
+     * How long before it expires a popular answer is recomputed in the background.
+     */
+    public Duration getAnswerCacheRefreshAhead() {
+        return answerCacheRefreshAhead;
+    }
+
+    public void setAnswerCacheRefreshAhead(Duration answerCacheRefreshAhead) {
+        this.answerCacheRefreshAhead = answerCacheRefreshAhead;
+    }
+
+    /**
+     * How many of each database's most asked questions have their answers kept warm.
+     */
+    public int getAnswerCacheTopQuestions() {
+        return answerCacheTopQuestions;
+    }
+
+    public void setAnswerCacheTopQuestions(int answerCacheTopQuestions) {
+        this.answerCacheTopQuestions = answerCacheTopQuestions;
+    }
+
+    public int getAnswerCacheMinAsks() {
+        return answerCacheMinAsks;
+    }
+
+    public void setAnswerCacheMinAsks(int answerCacheMinAsks) {
+        this.answerCacheMinAsks = answerCacheMinAsks;
+    }
+
+    /**
+     * Heap (as estimated by the result buffers) that all precomputed answers together may take up.
+     */
+    public long getAnswerCacheMaxBytes() {
+        return answerCacheMaxBytes;
+    }
+
+    public void setAnswerCacheMaxBytes(long answerCacheMaxBytes) {
+        this.answerCacheMaxBytes = answerCacheMaxBytes;
+    }
+
+    /**
+     * How quickly past asks stop counting towards a question's popularity.
+     */
+    public Duration getAnswerCachePopularityHalfLife() {
+        return answerCachePopularityHalfLife;
+    }
+
+    public void setAnswerCachePopularityHalfLife(Duration answerCachePopularityHalfLife) {
+        this.answerCachePopularityHalfLife = answerCachePopularityHalfLife;
+    }
+
+    /**
+     * How long a popular question isn't recomputed after its refresh failed or its result couldn't be kept;
+     * doubles with every further failure.
+     */
+    public Duration getAnswerRefreshBackoff() {
+        return answerRefreshBackoff;
+    }
+
+    public void setAnswerRefreshBackoff(Duration answerRefreshBackoff) {
+        this.answerRefreshBackoff = answerRefreshBackoff;
+    }
+
+    public int getAnswerRefreshThreads() {
+        return answerRefreshThreads;
+    }
+
+    public void setAnswerRefreshThreads(int answerRefreshThreads) {
+        this.answerRefreshThreads = answerRefreshThreads;
+    }
+
+    /**
+     * Background refresh settings by database name or {@code DbType}.
+     */
+    public Map<String, AnswerRefreshSettings> getAnswerRefresh() {
+        return answerRefresh;
+    }
+
+    public void setAnswerRefresh(Map<String, AnswerRefreshSettings> answerRefresh) {
+        this.answerRefresh = answerRefresh;
+    }
+
+    public static class BulkheadSettings {
+
+        private Integer maxConcurrent;
+        private Integer maxQueued;
+        private Duration maxWait;
+        private Double weight;
+
+        public Integer getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(Integer maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public Integer getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(Integer maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Double getWeight() {
+            return weight;
+        }
+
+        public void setWeight(Double weight) {
+            this.weight = weight;
+        }
+    }
+
+    public static class AnswerRefreshSettings {
+
+        private String quietHours;
+        private String zone;
+        private Integer maxConcurrent;
+
+        /**
+         * Comma-separated {@code HH:mm-HH:mm} ranges, in {@link #getZone()}, during which the database isn't
+         * queried in the background.
+         */
+        public String getQuietHours() {
+            return quietHours;
+        }
+
+        public void setQuietHours(String quietHours) {
+            this.quietHours = quietHours;
+        }
+
+        /**
+         * The time zone of the quiet hours, e.g. {@code Europe/Paris}; UTC if not set.
+         */
+        public String getZone() {
+            return zone;
+        }
+
+        public void setZone(String zone) {
+            this.zone = zone;
+        }
+
+        /**
+         * How many background queries the database runs at once.
+         */
+        public Integer getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(Integer maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
 }
@@ -0,0 +1,23 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.config;
+
+import io.aws.bedrock.dataexploration.controller.ResultBufferReleaser;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ResultBufferReleaser resultBufferReleaser;
+
+    public WebConfig(ResultBufferReleaser resultBufferReleaser) {
+        this.resultBufferReleaser = resultBufferReleaser;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(resultBufferReleaser);
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.controller;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationReason;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.cancellation.QueryCancelledException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Ties a question's {@link CancellationToken} to its HTTP request. Requests are answered asynchronously, so
+ * the container can notice a client that disconnects while the answer is being worked on, and time the request
+ * out at its deadline; either cancels the token and so aborts the model call or query in flight.
+ * <p>
+ * The deadline is {@code requestTimeout} ({@code streamTimeout} for streamed exports), or the client's own
+ * {@value #REQUEST_TIMEOUT_HEADER} (in seconds) if that's shorter.
+ */
+@Component
+public class CancellableRequests {
+
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final CancellationService cancellationService;
+    private final Duration requestTimeout;
+    private final Duration streamTimeout;
+
+    public CancellableRequests(CancellationService cancellationService,
+            DataExplorationProperties dataExplorationProperties) {
+        this.cancellationService = cancellationService;
+        this.requestTimeout = dataExplorationProperties.getRequestTimeout();
+        this.streamTimeout = dataExplorationProperties.getStreamTimeout();
+    }
+
+    /**
+     * Runs the work on the MVC task executor, cancelling its token if the client disconnects or the request's
+     * deadline passes. A passed deadline fails the request with a {@link QueryCancelledException}.
+     */
+    public <T> WebAsyncTask<T> run(HttpServletRequest request, CancellableWork<T> work) {
+        return run(request, requestTimeout, work);
+    }
+
+    /**
+     * Like {@link #run}, for work that streams its answer straight to the response, with the longer
+     * {@code streamTimeout} as its deadline.
+     */
+    public WebAsyncTask<Void> stream(HttpServletRequest request, CancellableStream work) {
+        return run(request, streamTimeout, cancellationToken -> {
+            work.run(cancellationToken);
+            return null;
+        });
+    }
+
+    private <T> WebAsyncTask<T> run(HttpServletRequest request, Duration maxTimeout, CancellableWork<T> work) {
+        Duration timeout = getTimeout(request, maxTimeout);
+        CancellationToken cancellationToken = bind(request, timeout);
+        Callable<T> callable = () -> work.run(cancellationToken);
+        return new WebAsyncTask<>(timeout.toMillis(), callable);
+    }
+
+    private CancellationToken bind(HttpServletRequest request, Duration timeout) {
+        CancellationToken cancellationToken = cancellationService.newToken(timeout);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(CancellableRequests.class.getName(),
+                new CancellingInterceptor(cancellationToken));
+        return cancellationToken;
+    }
+
+    private Duration getTimeout(HttpServletRequest request, Duration maxTimeout) {
+        String header = request.getHeader(REQUEST_TIMEOUT_HEADER);
+        if (header == null) {
+            return maxTimeout;
+        }
+        try {
+            Duration clientTimeout = Duration.ofMillis((long) (Double.parseDouble(header) * 1000));
+            return clientTimeout.isNegative() || clientTimeout.compareTo(maxTimeout) > 0
+                    ? maxTimeout
+                    : clientTimeout;
+        } catch (NumberFormatException e) {
+            return maxTimeout;
+        }
+    }
+
+    @FunctionalInterface
+    public interface CancellableWork<T> {
+
+        T run(CancellationToken cancellationToken) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface CancellableStream {
+
+        void run(CancellationToken cancellationToken) throws Exception;
+    }
+
+    private record CancellingInterceptor(CancellationToken cancellationToken)
+            implements CallableProcessingInterceptor {
+
+        @Override
+        public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+            cancellationToken.cancel(CancellationReason.DEADLINE_EXCEEDED);
+            return new QueryCancelledException(CancellationReason.DEADLINE_EXCEEDED);
+        }
+
+        @Override
+        public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+            cancellationToken.cancel(CancellationReason.CLIENT_DISCONNECTED);
+            return RESULT_NONE;
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            cancellationToken.complete();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.controller;
+
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.service.answercache.AnswerCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Closes the result buffer of a request's answer once the response has been written or the view rendered, so a
+ * spilled result's temp file is removed straight away instead of whenever the garbage collector gets to it.
+ * Answers held by the {@link AnswerCache} are shared with other requests, and are left open.
+ * <p>
+ * For asynchronous requests this runs at the end of the dispatch that writes the answer.
+ */
+@Component
+public class ResultBufferReleaser implements HandlerInterceptor {
+
+    private static final String ATTRIBUTE = ResultBufferReleaser.class.getName() + ".queryResult";
+
+    private final AnswerCache answerCache;
+
+    public ResultBufferReleaser(AnswerCache answerCache) {
+        this.answerCache = answerCache;
+    }
+
+    /**
+     * Marks the answer to be closed once the request completes.
+     *
+     * @return the answer
+     */
+    public static QueryResult releaseAfterCompletion(HttpServletRequest request, QueryResult queryResult) {
+        request.setAttribute(ATTRIBUTE, queryResult);
+        return queryResult;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(ATTRIBUTE) instanceof QueryResult queryResult) {
+            request.removeAttribute(ATTRIBUTE);
+            if (!answerCache.holds(queryResult)) {
+                queryResult.getValues().close();
+            }
+        }
+    }
+}
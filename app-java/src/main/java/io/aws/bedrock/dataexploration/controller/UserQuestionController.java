@@ -2,10 +2,13 @@
 // SPDX-License-Identifier: MIT-0
 package io.aws.bedrock.dataexploration.controller;
 
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
 import io.aws.bedrock.dataexploration.service.BedrockService;
 import io.aws.bedrock.dataexploration.service.DynamoDbService;
 import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.routing.DatabaseRouter;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +18,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.ModelAndView;
 
 import java.util.Map;
@@ -26,11 +30,18 @@ public class UserQuestionController {
     private static final Logger LOGGER = LoggerFactory.getLogger(UserQuestionController.class);
     private final DynamoDbService dynamoDbService;
     private final UserQueryExecutionService userQueryExecutionService;
-;
+    private final CancellableRequests cancellableRequests;
+    private final DatabaseRouter databaseRouter;
+    private final int resultDisplayRows;
 
-    public UserQuestionController(DynamoDbService dynamoDbService, UserQueryExecutionService userQueryExecutionService) {
+    public UserQuestionController(DynamoDbService dynamoDbService, UserQueryExecutionService userQueryExecutionService,
+            CancellableRequests cancellableRequests, DatabaseRouter databaseRouter,
+            DataExplorationProperties dataExplorationProperties) {
         this.dynamoDbService = dynamoDbService;
         this.userQueryExecutionService = userQueryExecutionService;
+        this.cancellableRequests = cancellableRequests;
+        this.databaseRouter = databaseRouter;
+        this.resultDisplayRows = dataExplorationProperties.getResultDisplayRows();
     }
 
     @GetMapping
@@ -40,19 +51,27 @@ public class UserQuestionController {
     }
 
     @PostMapping
-    public String userQuestionSubmitted(HttpServletRequest httpServletRequest, Model model) throws ClassNotFoundException {
+    public WebAsyncTask<String> userQuestionSubmitted(HttpServletRequest httpServletRequest, Model model) {
         Map<String, String[]> parameterMap = httpServletRequest.getParameterMap();
         String databaseName = parameterMap.get("databaseName")[0];
         String userQuestion = parameterMap.get("userQuestion")[0];
-        QueryResult queryResult = userQueryExecutionService.executeQuery(databaseName, userQuestion);
-        model.addAttribute("queryResult", queryResult);
-        model.addAttribute("userQuestion", userQuestion);
-        return "questionResult";
+        return cancellableRequests.run(httpServletRequest, cancellationToken -> {
+            // An empty database name is the "pick automatically" option:
+            QueryResult queryResult = databaseName.isBlank()
+                    ? databaseRouter.answer(userQuestion, cancellationToken)
+                    : userQueryExecutionService.executeQuery(databaseName, userQuestion, cancellationToken);
+            model.addAttribute("queryResult",
+                    ResultBufferReleaser.releaseAfterCompletion(httpServletRequest, queryResult));
+            model.addAttribute("userQuestion", userQuestion);
+            model.addAttribute("resultDisplayRows", resultDisplayRows);
+            return "questionResult";
+        });
     }
 
     @GetMapping("/test")
     public QueryResult test(Model model) throws ClassNotFoundException {
-        return userQueryExecutionService.executeQuery("neptune", "Which movie launched Angelina Jolies career?");
+        return userQueryExecutionService.executeQuery("neptune", "Which movie launched Angelina Jolies career?",
+                CancellationToken.NONE);
     }
 
     @ExceptionHandler(Exception.class)
@@ -2,11 +2,31 @@
 // SPDX-License-Identifier: MIT-0
 package io.aws.bedrock.dataexploration.controller.api;
 
+import io.aws.bedrock.dataexploration.controller.CancellableRequests;
+import io.aws.bedrock.dataexploration.controller.ResultBufferReleaser;
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.QuestionCacheReport;
+import io.aws.bedrock.dataexploration.entity.RankedDatabase;
 import io.aws.bedrock.dataexploration.service.DynamoDbService;
 import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import io.aws.bedrock.dataexploration.service.arrow.ArrowStreamExporter;
+import io.aws.bedrock.dataexploration.service.bulkhead.BulkheadRejectedException;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationReason;
+import io.aws.bedrock.dataexploration.service.cancellation.QueryCancelledException;
+import io.aws.bedrock.dataexploration.service.questioncache.QuestionCache;
+import io.aws.bedrock.dataexploration.service.routing.DatabaseRouter;
+import io.aws.bedrock.dataexploration.service.routing.NoMatchingDatabaseException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -14,11 +34,18 @@ public class DataExplorationApiController {
 
     private final DynamoDbService dynamoDbService;
     private final UserQueryExecutionService userQueryExecutionService;
+    private final QuestionCache questionCache;
+    private final CancellableRequests cancellableRequests;
+    private final DatabaseRouter databaseRouter;
 
     public DataExplorationApiController(DynamoDbService dynamoDbService,
-            UserQueryExecutionService userQueryExecutionService) {
+            UserQueryExecutionService userQueryExecutionService, QuestionCache questionCache,
+            CancellableRequests cancellableRequests, DatabaseRouter databaseRouter) {
         this.dynamoDbService = dynamoDbService;
         this.userQueryExecutionService = userQueryExecutionService;
+        this.questionCache = questionCache;
+        this.cancellableRequests = cancellableRequests;
+        this.databaseRouter = databaseRouter;
     }
 
     @GetMapping("/databases")
@@ -27,10 +54,62 @@ public class DataExplorationApiController {
     }
 
     @PostMapping("/query")
-    public QueryResult dataExploration(@RequestBody DataExplorationRequest dataExplorationRequest)
-            throws ClassNotFoundException {
-        return userQueryExecutionService.executeQuery(dataExplorationRequest.databaseName(),
-                dataExplorationRequest.query());
+    public WebAsyncTask<QueryResult> dataExploration(@RequestBody DataExplorationRequest dataExplorationRequest,
+            HttpServletRequest request) {
+        return cancellableRequests.run(request, cancellationToken -> ResultBufferReleaser.releaseAfterCompletion(
+                request, dataExplorationRequest.isRouted()
+                        ? databaseRouter.answer(dataExplorationRequest.query(), cancellationToken)
+                        : userQueryExecutionService.executeQuery(dataExplorationRequest.databaseName(),
+                                dataExplorationRequest.query(), cancellationToken)));
+    }
+
+    @PostMapping(value = "/query", produces = ArrowStreamExporter.ARROW_STREAM_MEDIA_TYPE)
+    public WebAsyncTask<Void> dataExplorationArrow(@RequestBody DataExplorationRequest dataExplorationRequest,
+            HttpServletRequest request, HttpServletResponse response) {
+        // Generating the query is part of the cancellable work too, so a client that gives up during the model
+        // call stops it:
+        return cancellableRequests.stream(request, cancellationToken -> {
+            // A stream can only come from one database, so routed questions go to the best match only:
+            DatabaseInformation databaseItem = dataExplorationRequest.isRouted()
+                    ? databaseRouter.selectCandidates(dataExplorationRequest.query()).get(0)
+                    : dynamoDbService.getDatabaseItem(dataExplorationRequest.databaseName());
+            // Generate the query before writing anything, so Bedrock errors still get a proper error response:
+            BedrockResult bedrockResult = userQueryExecutionService.generateQuery(databaseItem,
+                    dataExplorationRequest.query(), cancellationToken);
+            response.setContentType(ArrowStreamExporter.ARROW_STREAM_MEDIA_TYPE);
+            userQueryExecutionService.exportQueryResult(databaseItem, dataExplorationRequest.query(),
+                    bedrockResult, response.getOutputStream(), cancellationToken);
+        });
+    }
+
+    @GetMapping("/routing")
+    public List<RankedDatabase> rankDatabases(@RequestParam String question) {
+        return databaseRouter.rank(question);
+    }
+
+    @GetMapping("/question-cache")
+    public List<QuestionCacheReport> questionCacheReport() {
+        return questionCache.report();
+    }
+
+    @ExceptionHandler(BulkheadRejectedException.class)
+    public ResponseEntity<String> bulkheadRejected(BulkheadRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(NoMatchingDatabaseException.class)
+    public ResponseEntity<String> noMatchingDatabase(NoMatchingDatabaseException e) {
+        return ResponseEntity.unprocessableEntity().body(e.getMessage());
+    }
+
+    @ExceptionHandler(QueryCancelledException.class)
+    public ResponseEntity<String> queryCancelled(QueryCancelledException e) {
+        return ResponseEntity.status(e.getReason() == CancellationReason.DEADLINE_EXCEEDED
+                        ? HttpStatus.GATEWAY_TIMEOUT
+                        : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(e.getMessage());
     }
 
 }
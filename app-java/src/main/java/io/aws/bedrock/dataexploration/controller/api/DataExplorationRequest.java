@@ -2,5 +2,12 @@
 // SPDX-License-Identifier: MIT-0
 package io.aws.bedrock.dataexploration.controller.api;
 
+/**
+ * @param databaseName the database to ask, or null to let the service pick the best matching ones
+ */
 public record DataExplorationRequest(String databaseName, String query) {
+
+    public boolean isRouted() {
+        return databaseName == null || databaseName.isBlank();
+    }
 }
@@ -0,0 +1,84 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.controller.api;
+
+import io.aws.bedrock.dataexploration.entity.QueryJob;
+import io.aws.bedrock.dataexploration.entity.QueryResultPage;
+import io.aws.bedrock.dataexploration.service.job.QueryJobService;
+import io.aws.bedrock.dataexploration.service.routing.DatabaseRouter;
+import io.aws.bedrock.dataexploration.service.routing.NoMatchingDatabaseException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class QueryJobApiController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final QueryJobService queryJobService;
+    private final DatabaseRouter databaseRouter;
+
+    public QueryJobApiController(QueryJobService queryJobService, DatabaseRouter databaseRouter) {
+        this.queryJobService = queryJobService;
+        this.databaseRouter = databaseRouter;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public QueryJob submitJob(@RequestBody DataExplorationRequest dataExplorationRequest) {
+        try {
+            // A job's result comes from one database, so routed questions go to the best match only:
+            String databaseName = dataExplorationRequest.isRouted()
+                    ? databaseRouter.selectCandidates(dataExplorationRequest.query()).get(0).getDatabaseName()
+                    : dataExplorationRequest.databaseName();
+            return queryJobService.submitJob(databaseName, dataExplorationRequest.query());
+        } catch (NoMatchingDatabaseException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage(), e);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many queued jobs, retry later", e);
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public QueryJob getJob(@PathVariable String jobId) {
+        return findJob(jobId);
+    }
+
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter jobEvents(@PathVariable String jobId) {
+        return queryJobService.subscribe(findJob(jobId));
+    }
+
+    @GetMapping("/{jobId}/results")
+    public QueryResultPage getResults(@PathVariable String jobId, @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) throws IOException {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        QueryJob queryJob = findJob(jobId);
+        if (!queryJob.getStatus().isTerminal()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Job has not finished yet: " + queryJob.getStatus());
+        }
+        QueryResultPage resultPage = queryJobService.getResultPage(queryJob, page, size);
+        if (resultPage == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No results available for job " + jobId);
+        }
+        return resultPage;
+    }
+
+    private QueryJob findJob(String jobId) {
+        QueryJob queryJob = queryJobService.getJob(jobId);
+        if (queryJob == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job " + jobId);
+        }
+        return queryJob;
+    }
+}
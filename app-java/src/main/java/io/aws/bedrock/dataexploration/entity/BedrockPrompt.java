@@ -0,0 +1,10 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+/**
+ * A prompt split into the part that's the same for every question to a database ({@code system}: the
+ * instructions and schema, which the model can cache) and the part that isn't ({@code userMessage}).
+ */
+public record BedrockPrompt(String system, String userMessage) {
+}
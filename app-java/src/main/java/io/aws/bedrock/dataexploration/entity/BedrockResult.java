@@ -8,9 +8,19 @@ public class BedrockResult {
 
     private final String query;
 
+    private final boolean reused;
+
     public BedrockResult(String explanation, String query) {
+        this(explanation, query, false);
+    }
+
+    /**
+     * @param reused whether the query was generated for an earlier question and reused for this one
+     */
+    public BedrockResult(String explanation, String query, boolean reused) {
         this.explanation = explanation;
         this.query = query;
+        this.reused = reused;
     }
 
     public String getExplanation() {
@@ -21,11 +31,16 @@ public class BedrockResult {
         return query;
     }
 
+    public boolean isReused() {
+        return reused;
+    }
+
     @Override
     public String toString() {
         return "BedrockResult{" +
                "explanation='" + explanation + '\'' +
                ", query='" + query + '\'' +
+               ", reused=" + reused +
                '}';
     }
 }
@@ -5,10 +5,13 @@ package io.aws.bedrock.dataexploration.entity;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
 
+import java.util.List;
+
 @DynamoDbBean
 public class DatabaseInformation {
 
     private String connectionUrl;
+    private List<String> readerConnectionUrls;
     private String databaseName;
     private String databaseCredentialsSsm;
     private DbType dbType;
@@ -22,6 +25,18 @@ public class DatabaseInformation {
         this.connectionUrl = connectionUrl;
     }
 
+    /**
+     * Optional read replicas of the database at {@code connectionUrl}, which generated queries are sent to
+     * instead of it (PostgreSQL only).
+     */
+    public List<String> getReaderConnectionUrls() {
+        return readerConnectionUrls;
+    }
+
+    public void setReaderConnectionUrls(List<String> readerConnectionUrls) {
+        this.readerConnectionUrls = readerConnectionUrls;
+    }
+
     @DynamoDbPartitionKey
     public String getDatabaseName() {
         return databaseName;
@@ -59,6 +74,7 @@ public class DatabaseInformation {
     public String toString() {
         return "DatabaseInformationDDB{" +
                 "connectionUrl='" + connectionUrl + "'" +
+                ", readerConnectionUrls=" + readerConnectionUrls +
                 "databaseName='" + databaseName + '\'' +
                 ", databaseCredentialsSsm='" + databaseCredentialsSsm + '\'' +
                 ", dbType=" + dbType +
@@ -0,0 +1,13 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+public enum JobStatus {
+
+    QUEUED, GENERATING_QUERY, EXECUTING_QUERY, SUCCEEDED, FAILED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+
+}
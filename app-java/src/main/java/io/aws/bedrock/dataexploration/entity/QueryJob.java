@@ -0,0 +1,166 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+/**
+ * Metadata of an asynchronous question job. Timestamps are epoch milliseconds, except {@code expiresAt}
+ * which is in epoch seconds for use as the DynamoDB TTL attribute. A running job is updated by its worker thread
+ * while HTTP threads read it, so the fields are volatile; the status is set last on each change.
+ */
+@DynamoDbBean
+public class QueryJob {
+
+    private volatile String jobId;
+    private volatile String databaseName;
+    private volatile String question;
+    private volatile JobStatus status;
+    private volatile String query;
+    private volatile String explanation;
+    private volatile String errorMessage;
+    private volatile Long rowCount;
+    private volatile Long submittedAt;
+    private volatile Long startedAt;
+    private volatile Long queryGeneratedAt;
+    private volatile Long finishedAt;
+    private volatile Long expiresAt;
+    private volatile String instanceId;
+    private volatile Long leaseExpiresAt;
+
+    @DynamoDbPartitionKey
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getDatabaseName() {
+        return databaseName;
+    }
+
+    public void setDatabaseName(String databaseName) {
+        this.databaseName = databaseName;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getExplanation() {
+        return explanation;
+    }
+
+    public void setExplanation(String explanation) {
+        this.explanation = explanation;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(Long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Long getQueryGeneratedAt() {
+        return queryGeneratedAt;
+    }
+
+    public void setQueryGeneratedAt(Long queryGeneratedAt) {
+        this.queryGeneratedAt = queryGeneratedAt;
+    }
+
+    public Long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    /**
+     * @return until when the instance running the job is known to be alive; it renews this while the job runs
+     */
+    public Long getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Long leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryJob{" +
+                "jobId='" + jobId + '\'' +
+                ", databaseName='" + databaseName + '\'' +
+                ", status=" + status +
+                ", rowCount=" + rowCount +
+                ", instanceId='" + instanceId + '\'' +
+                '}';
+    }
+}
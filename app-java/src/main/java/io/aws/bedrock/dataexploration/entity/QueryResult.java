@@ -6,17 +6,18 @@ import java.util.LinkedList;
 
 public class QueryResult {
 
-    private final LinkedList<LinkedList<String>> values;
+    private final ResultBuffer values;
     private final LinkedList<String> columns;
 
     private  BedrockResult bedrockResult;
+    private String databaseName;
 
-    public QueryResult(LinkedList<LinkedList<String>> values, LinkedList<String> columns) {
+    public QueryResult(ResultBuffer values, LinkedList<String> columns) {
         this.values = values;
         this.columns = columns;
     }
 
-    public LinkedList<LinkedList<String>> getValues() {
+    public ResultBuffer getValues() {
         return values;
     }
 
@@ -31,4 +32,15 @@ public class QueryResult {
     public void setBedrockResult(BedrockResult bedrockResult) {
         this.bedrockResult = bedrockResult;
     }
+
+    /**
+     * The database that answered, which the service picks itself when a question doesn't name one.
+     */
+    public String getDatabaseName() {
+        return databaseName;
+    }
+
+    public void setDatabaseName(String databaseName) {
+        this.databaseName = databaseName;
+    }
 }
@@ -0,0 +1,9 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+import java.util.List;
+
+public record QueryResultPage(List<String> columns, List<List<String>> values, int page, int pageSize,
+        long totalRows) {
+}
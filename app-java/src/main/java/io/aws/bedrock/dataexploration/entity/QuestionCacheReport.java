@@ -0,0 +1,12 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+/**
+ * Question cache effectiveness for one database since startup. {@code queryMismatchRate} is the share of sampled
+ * cache hits for which a fresh model call produced a textually different query. That's an upper bound on wrong
+ * reuse, since a differently written query may well return the same result.
+ */
+public record QuestionCacheReport(String databaseName, int entries, long evictions, long lookups, long hits,
+        double hitRate, long verifiedHits, long queryMismatches, double queryMismatchRate) {
+}
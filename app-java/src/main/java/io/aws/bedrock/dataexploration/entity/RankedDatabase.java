@@ -0,0 +1,9 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+/**
+ * How well a database's schema matches a question; higher scores are better, and 0 means no word in common.
+ */
+public record RankedDatabase(String databaseName, DbType dbType, double score) {
+}
@@ -0,0 +1,285 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Row storage for a {@link QueryResult}. Rows are kept on the heap until their estimated size passes
+ * {@code heapThresholdBytes}; any further rows are appended to a temp file in a compact binary format
+ * (per row: cell count, then per cell a byte length - or -1 for null - and the UTF-8 bytes), which is
+ * memory-mapped once the buffer is finished. Reads then decode rows straight from the mapped pages, so
+ * iterating or paging a large result never loads it onto the heap all at once.
+ * <p>
+ * The temp file is removed on {@link #close()}, or when the buffer is garbage collected.
+ */
+@JsonSerialize(using = ResultBuffer.RowsSerializer.class)
+public class ResultBuffer implements Iterable<List<String>>, AutoCloseable {
+
+    // Mapped segments stay well below the 2GB limit of a single MappedByteBuffer:
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final long heapThresholdBytes;
+    private final Path spillDirectory;
+    private final List<List<String>> heapRows = new ArrayList<>();
+    private long heapBytes;
+
+    private SpillFile spillFile;
+    private Cleaner.Cleanable cleanable;
+    private DataOutputStream spillOutput;
+    private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+    private long spillPosition;
+    private long[] rowOffsets = new long[0];
+    private int spilledRows;
+    private long[] segmentStarts = new long[0];
+    private MappedByteBuffer[] segments;
+    private boolean finished;
+
+    public ResultBuffer(long heapThresholdBytes, Path spillDirectory) {
+        this.heapThresholdBytes = heapThresholdBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public void addRow(List<String> row) {
+        if (finished) {
+            throw new IllegalStateException("Result buffer is already finished");
+        }
+        if (spillOutput == null) {
+            long rowSize = estimateHeapSize(row);
+            if (heapBytes + rowSize <= heapThresholdBytes) {
+                heapRows.add(row);
+                heapBytes += rowSize;
+                return;
+            }
+            startSpilling();
+        }
+        try {
+            spillRow(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes and maps any spilled rows. No rows can be added afterwards.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (spillOutput == null) {
+            return;
+        }
+        try {
+            spillOutput.flush();
+            segments = new MappedByteBuffer[segmentStarts.length];
+            for (int i = 0; i < segmentStarts.length; i++) {
+                long end = i + 1 < segmentStarts.length ? segmentStarts[i + 1] : spillPosition;
+                segments[i] = spillFile.channel.map(FileChannel.MapMode.READ_ONLY, segmentStarts[i],
+                        end - segmentStarts[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return heapRows.size() + spilledRows;
+    }
+
+    /**
+     * @return the estimated heap size of the rows kept on the heap
+     */
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    public boolean isSpilled() {
+        return spilledRows > 0;
+    }
+
+    public List<String> getRow(int index) {
+        if (index < heapRows.size()) {
+            return heapRows.get(index);
+        }
+        return readSpilledRow(index - heapRows.size());
+    }
+
+    /**
+     * @return a view of up to {@code count} rows starting at {@code fromIndex}, decoded as they're iterated
+     */
+    public Iterable<List<String>> rows(int fromIndex, int count) {
+        int start = Math.max(0, Math.min(fromIndex, size()));
+        int end = (int) Math.min(size(), (long) start + Math.max(0, count));
+        return () -> new RowIterator(start, end);
+    }
+
+    @Override
+    public Iterator<List<String>> iterator() {
+        return new RowIterator(0, size());
+    }
+
+    @Override
+    public void close() {
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+        segments = null;
+    }
+
+    private void startSpilling() {
+        try {
+            Files.createDirectories(spillDirectory);
+            Path path = Files.createTempFile(spillDirectory, "query-result-", ".bin");
+            spillFile = new SpillFile(path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            cleanable = CLEANER.register(this, spillFile);
+            spillOutput = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(spillFile.channel),
+                    64 * 1024));
+            segmentStarts = new long[]{0L};
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void spillRow(List<String> row) throws IOException {
+        rowBytes.reset();
+        DataOutputStream rowOutput = new DataOutputStream(rowBytes);
+        rowOutput.writeInt(row.size());
+        for (String cell : row) {
+            if (cell == null) {
+                rowOutput.writeInt(-1);
+            } else {
+                byte[] bytes = cell.getBytes(StandardCharsets.UTF_8);
+                rowOutput.writeInt(bytes.length);
+                rowOutput.write(bytes);
+            }
+        }
+        // Rows never straddle two mapped segments:
+        long segmentStart = segmentStarts[segmentStarts.length - 1];
+        if (spillPosition > segmentStart && spillPosition - segmentStart + rowBytes.size() > SEGMENT_BYTES) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length + 1);
+            segmentStarts[segmentStarts.length - 1] = spillPosition;
+        }
+        if (spilledRows == rowOffsets.length) {
+            rowOffsets = Arrays.copyOf(rowOffsets, Math.max(1024, rowOffsets.length * 2));
+        }
+        rowOffsets[spilledRows++] = spillPosition;
+        rowBytes.writeTo(spillOutput);
+        spillPosition += rowBytes.size();
+    }
+
+    private List<String> readSpilledRow(int spilledIndex) {
+        if (!finished) {
+            throw new IllegalStateException("Result buffer must be finished before reading spilled rows");
+        }
+        if (segments == null) {
+            throw new IllegalStateException("Result buffer is closed");
+        }
+        long offset = rowOffsets[spilledIndex];
+        int segment = Arrays.binarySearch(segmentStarts, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        ByteBuffer view = segments[segment].duplicate();
+        view.position((int) (offset - segmentStarts[segment]));
+        int cellCount = view.getInt();
+        List<String> row = new ArrayList<>(cellCount);
+        for (int i = 0; i < cellCount; i++) {
+            int length = view.getInt();
+            if (length < 0) {
+                row.add(null);
+            } else {
+                byte[] bytes = new byte[length];
+                view.get(bytes);
+                row.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return Collections.unmodifiableList(row);
+    }
+
+    // Rough retained size of a row of Strings: list and string headers plus 1-2 bytes per char.
+    private static long estimateHeapSize(List<String> row) {
+        long size = 64;
+        for (String cell : row) {
+            size += cell == null ? 8 : 48 + 2L * cell.length();
+        }
+        return size;
+    }
+
+    private class RowIterator implements Iterator<List<String>> {
+        private int next;
+        private final int end;
+
+        RowIterator(int start, int end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public List<String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return getRow(next++);
+        }
+    }
+
+    private record SpillFile(Path path, FileChannel channel) implements Runnable {
+        @Override
+        public void run() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    public static class RowsSerializer extends JsonSerializer<ResultBuffer> {
+        @Override
+        public void serialize(ResultBuffer resultBuffer, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray();
+            for (List<String> row : resultBuffer) {
+                generator.writeStartArray();
+                for (String cell : row) {
+                    generator.writeString(cell);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
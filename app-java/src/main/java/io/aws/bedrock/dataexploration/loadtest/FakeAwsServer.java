@@ -0,0 +1,273 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in for the two AWS APIs the application calls over plain HTTP during a question: Bedrock runtime
+ * {@code InvokeModel} and Secrets Manager {@code GetSecretValue}. Point the application at it with
+ * {@code bedrock.data.exploration.bedrockEndpoint} and {@code bedrock.data.exploration.secretsManagerEndpoint}.
+ * <p>
+ * Model responses are picked from a JSON file of canned answers - the first entry whose {@code match} regex is
+ * found in the prompt wins - and delayed according to a latency distribution, one of {@code fixed:<ms>},
+ * {@code uniform:<minMs>:<maxMs>} or {@code lognormal:<medianMs>:<sigma>}.
+ * <p>
+ * Messages-style requests also pay a simulated prompt processing time of {@code --prefill-ms-per-1k-tokens}
+ * (tokens estimated as 4 characters each) on top of that. System prompts marked with {@code cache_control} are
+ * cached for five minutes like on Bedrock: a repeated prefix is reported as {@code cache_read_input_tokens} and
+ * not charged again, so the time-to-first-token saving of prompt caching shows up in the measured latency.
+ *
+ * <pre>
+ * java -cp app.jar -Dloader.main=io.aws.bedrock.dataexploration.loadtest.FakeAwsServer \
+ *     org.springframework.boot.loader.PropertiesLauncher \
+ *     --port=4566 --responses=load-test/canned-responses.json --secrets=load-test/secrets.json \
+ *     --latency=lognormal:1500:0.4 --prefill-ms-per-1k-tokens=150
+ * </pre>
+ */
+public class FakeAwsServer {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long PROMPT_CACHE_TTL_MILLIS = Duration.ofMinutes(5).toMillis();
+
+    private final List<CannedResponse> cannedResponses;
+    private final JsonNode secrets;
+    private final LatencyDistribution latency;
+    private final double prefillMillisPerToken;
+    // Cached prompt prefixes and when they expire:
+    private final Map<String, Long> promptCache = new ConcurrentHashMap<>();
+    private final AtomicLong modelCalls = new AtomicLong();
+    private final AtomicLong unmatchedPrompts = new AtomicLong();
+    private final AtomicLong promptCacheHits = new AtomicLong();
+
+    public FakeAwsServer(List<CannedResponse> cannedResponses, JsonNode secrets, LatencyDistribution latency,
+            double prefillMillisPerThousandTokens) {
+        this.cannedResponses = cannedResponses;
+        this.secrets = secrets;
+        this.latency = latency;
+        this.prefillMillisPerToken = prefillMillisPerThousandTokens / 1000;
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        int port = options.getInt("port", 4566);
+        List<CannedResponse> cannedResponses = new ArrayList<>();
+        for (JsonNode entry : OBJECT_MAPPER.readTree(new File(options.get("responses", "canned-responses.json")))) {
+            cannedResponses.add(new CannedResponse(Pattern.compile(entry.get("match").textValue()),
+                    entry.get("query").textValue(), entry.get("explanation").textValue()));
+        }
+        JsonNode secrets = OBJECT_MAPPER.readTree(new File(options.get("secrets", "secrets.json")));
+        LatencyDistribution latency = LatencyDistribution.parse(options.get("latency", "lognormal:1500:0.4"));
+
+        double prefillMillis = Double.parseDouble(options.get("prefill-ms-per-1k-tokens", "0"));
+
+        FakeAwsServer fakeAwsServer = new FakeAwsServer(cannedResponses, secrets, latency, prefillMillis);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", fakeAwsServer::handle);
+        // Model calls sleep for their simulated latency, so every in-flight request needs its own thread:
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        System.out.printf("Fake AWS endpoint listening on port %d with %d canned responses, latency %s%n", port,
+                cannedResponses.size(), options.get("latency", "lognormal:1500:0.4"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            executor.shutdownNow();
+            System.out.printf("Served %d model calls, %d without a matching canned response, %d prompt cache hits%n",
+                    fakeAwsServer.modelCalls.get(), fakeAwsServer.unmatchedPrompts.get(),
+                    fakeAwsServer.promptCacheHits.get());
+        }));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            String path = exchange.getRequestURI().getPath();
+            if ("secretsmanager.GetSecretValue".equals(target)) {
+                getSecretValue(exchange, OBJECT_MAPPER.readTree(requestBody));
+            } else if (path.startsWith("/model/") && path.endsWith("/invoke")) {
+                invokeModel(exchange, OBJECT_MAPPER.readTree(requestBody));
+            } else {
+                send(exchange, 404, "application/json", "{\"message\":\"Not supported by the fake: "
+                        + (target != null ? target : path) + "\"}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void invokeModel(HttpExchange exchange, JsonNode request) throws IOException, InterruptedException {
+        modelCalls.incrementAndGet();
+        boolean messages = request.has("messages");
+        String system = messages ? text(request.path("system")) : "";
+        StringBuilder userText = new StringBuilder();
+        if (messages) {
+            for (JsonNode message : request.path("messages")) {
+                userText.append(text(message.path("content")));
+            }
+        } else {
+            userText.append(request.path("prompt").asText(""));
+        }
+        String prompt = system + "\n" + userText;
+        CannedResponse response = null;
+        for (CannedResponse candidate : cannedResponses) {
+            if (candidate.match().matcher(prompt).find()) {
+                response = candidate;
+                break;
+            }
+        }
+        String answer;
+        if (response == null) {
+            unmatchedPrompts.incrementAndGet();
+            answer = " unknown";
+        } else {
+            answer = " <explanation>" + response.explanation() + "</explanation>\n<query>" + response.query()
+                    + "</query>";
+        }
+        if (!messages) {
+            Thread.sleep(latency.nextMillis());
+            ObjectNode body = OBJECT_MAPPER.createObjectNode();
+            body.put("completion", answer);
+            body.put("stop_reason", "stop_sequence");
+            send(exchange, 200, "application/json", body.toString());
+            return;
+        }
+
+        long systemTokens = estimateTokens(system);
+        long userTokens = estimateTokens(userText);
+        long cacheRead = 0;
+        long cacheWrite = 0;
+        if (isCacheable(request.path("system"))) {
+            long now = System.currentTimeMillis();
+            Long expiresAt = promptCache.put(system, now + PROMPT_CACHE_TTL_MILLIS);
+            if (expiresAt != null && expiresAt > now) {
+                cacheRead = systemTokens;
+                promptCacheHits.incrementAndGet();
+            } else {
+                cacheWrite = systemTokens;
+            }
+        }
+        long uncachedTokens = systemTokens - cacheRead - cacheWrite + userTokens;
+        long prefillMillis = Math.round((uncachedTokens + cacheWrite) * prefillMillisPerToken);
+        Thread.sleep(prefillMillis + latency.nextMillis());
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("id", "msg_loadtest");
+        body.put("type", "message");
+        body.put("role", "assistant");
+        ObjectNode content = body.putArray("content").addObject();
+        content.put("type", "text");
+        content.put("text", answer);
+        body.put("stop_reason", "end_turn");
+        ObjectNode usage = body.putObject("usage");
+        usage.put("input_tokens", uncachedTokens);
+        usage.put("cache_creation_input_tokens", cacheWrite);
+        usage.put("cache_read_input_tokens", cacheRead);
+        usage.put("output_tokens", estimateTokens(answer));
+        send(exchange, 200, "application/json", body.toString());
+    }
+
+    // Content is either a plain string or a list of blocks:
+    private static String text(JsonNode content) {
+        if (content.isTextual()) {
+            return content.textValue();
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonNode block : content) {
+            text.append(block.path("text").asText());
+        }
+        return text.toString();
+    }
+
+    private static boolean isCacheable(JsonNode system) {
+        for (JsonNode block : system) {
+            if (block.has("cache_control")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long estimateTokens(CharSequence text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private void getSecretValue(HttpExchange exchange, JsonNode request) throws IOException {
+        String secretId = request.path("SecretId").asText();
+        JsonNode secret = secrets.get(secretId);
+        if (secret == null) {
+            send(exchange, 400, "application/x-amz-json-1.1",
+                    "{\"__type\":\"ResourceNotFoundException\",\"message\":\"Unknown secret " + secretId + "\"}");
+            return;
+        }
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("ARN", "arn:aws:secretsmanager:us-east-1:000000000000:secret:" + secretId);
+        body.put("Name", secretId);
+        body.put("VersionId", "loadtest");
+        body.put("SecretString", secret.toString());
+        send(exchange, 200, "application/x-amz-json-1.1", body.toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    public record CannedResponse(Pattern match, String query, String explanation) {
+    }
+
+    @FunctionalInterface
+    public interface LatencyDistribution {
+
+        long nextMillis();
+
+        static LatencyDistribution parse(String spec) {
+            String[] parts = spec.split(":");
+            return switch (parts[0]) {
+                case "fixed" -> {
+                    long millis = Long.parseLong(parts[1]);
+                    yield () -> millis;
+                }
+                case "uniform" -> {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    yield () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+                }
+                case "lognormal" -> {
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = Double.parseDouble(parts[2]);
+                    yield () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec
+                        + " (use fixed:<ms>, uniform:<minMs>:<maxMs> or lognormal:<medianMs>:<sigma>)");
+            };
+        }
+    }
+}
@@ -0,0 +1,257 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives {@code POST /api/query} and/or the {@code POST /} form endpoint with a fixed number of concurrent
+ * closed-loop clients, then reports throughput, latency percentiles, errors, and the server's allocation rate
+ * and GC time over the measured window (read from {@code /actuator/metrics}):
+ *
+ * <pre>
+ * java -cp app.jar -Dloader.main=io.aws.bedrock.dataexploration.loadtest.LoadTestDriver \
+ *     org.springframework.boot.loader.PropertiesLauncher \
+ *     --base-url=http://localhost:8080 --mode=mixed --concurrency=32 --warmup=30 --duration=120 \
+ *     --questions=load-test/questions.jsonl
+ * </pre>
+ *
+ * Each line of the questions file is a {@code {"databaseName": ..., "question": ...}} object; every request
+ * picks one at random, so repeat a line to weight it. Leave out the database name to let the service pick it.
+ */
+public class LoadTestDriver {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    // The form endpoint renders failures into the error page with a 200 status:
+    private static final String FORM_ERROR_MARKER = "<h1 class=\"mt-4\">Error</h1>";
+    // Lets the server give up on (and cancel) a question at the same time as the client:
+    private static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String baseUrl;
+    private final String mode;
+    private final List<JsonNode> questions;
+    private final Duration requestTimeout;
+
+    public LoadTestDriver(String baseUrl, String mode, List<JsonNode> questions, Duration requestTimeout) {
+        this.baseUrl = baseUrl;
+        this.mode = mode;
+        this.questions = questions;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        String baseUrl = options.get("base-url", "http://localhost:8080");
+        String mode = options.get("mode", "api");
+        if (!List.of("api", "form", "mixed").contains(mode)) {
+            throw new IllegalArgumentException("--mode must be api, form or mixed");
+        }
+        int concurrency = options.getInt("concurrency", 16);
+        Duration warmUp = options.getDuration("warmup", Duration.ofSeconds(30));
+        Duration duration = options.getDuration("duration", Duration.ofSeconds(60));
+        List<JsonNode> questions = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(options.get("questions", "questions.jsonl")))) {
+            if (!line.isBlank()) {
+                questions.add(OBJECT_MAPPER.readTree(line));
+            }
+        }
+        LoadTestDriver driver = new LoadTestDriver(baseUrl, mode, questions,
+                options.getDuration("request-timeout", Duration.ofSeconds(120)));
+
+        System.out.printf("Warming up for %ds with %d clients...%n", warmUp.toSeconds(), concurrency);
+        driver.run(concurrency, warmUp);
+        ServerMetrics before = driver.readServerMetrics();
+        System.out.printf("Measuring for %ds with %d clients (%s)...%n", duration.toSeconds(), concurrency, mode);
+        RunResult result = driver.run(concurrency, duration);
+        ServerMetrics after = driver.readServerMetrics();
+        result.print(before, after);
+    }
+
+    RunResult run(int concurrency, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<ClientResult>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> runClient(deadline)));
+            }
+            RunResult runResult = new RunResult();
+            for (Future<ClientResult> future : futures) {
+                runResult.add(future.get());
+            }
+            runResult.elapsedNanos = System.nanoTime() - start;
+            return runResult;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private ClientResult runClient(long deadline) {
+        ClientResult clientResult = new ClientResult();
+        while (System.nanoTime() < deadline) {
+            JsonNode question = questions.get(ThreadLocalRandom.current().nextInt(questions.size()));
+            boolean form = mode.equals("form") || (mode.equals("mixed") && ThreadLocalRandom.current().nextBoolean());
+            long start = System.nanoTime();
+            String outcome;
+            try {
+                HttpResponse<String> response = httpClient.send(form ? formRequest(question) : apiRequest(question),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    outcome = "HTTP " + response.statusCode();
+                } else if (form && response.body().contains(FORM_ERROR_MARKER)) {
+                    outcome = "error page";
+                } else {
+                    outcome = null;
+                }
+            } catch (IOException e) {
+                outcome = e.getClass().getSimpleName();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            clientResult.record(System.nanoTime() - start, outcome);
+        }
+        return clientResult;
+    }
+
+    private HttpRequest apiRequest(JsonNode question) {
+        String body = OBJECT_MAPPER.createObjectNode()
+                .put("databaseName", question.path("databaseName").textValue())
+                .put("query", question.get("question").textValue())
+                .toString();
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/query"))
+                .timeout(requestTimeout)
+                .header(REQUEST_TIMEOUT_HEADER, String.valueOf(requestTimeout.toSeconds()))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest formRequest(JsonNode question) {
+        String body = "databaseName=" + URLEncoder.encode(question.path("databaseName").asText(""),
+                StandardCharsets.UTF_8) + "&userQuestion=" + URLEncoder.encode(question.get("question").textValue(),
+                StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/"))
+                .timeout(requestTimeout)
+                .header(REQUEST_TIMEOUT_HEADER, String.valueOf(requestTimeout.toSeconds()))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private ServerMetrics readServerMetrics() {
+        return new ServerMetrics(System.nanoTime(), readMetric("jvm.gc.memory.allocated", "COUNT"),
+                readMetric("jvm.gc.pause", "TOTAL_TIME"));
+    }
+
+    // Returns NaN if the metric can't be read, e.g. when actuator isn't exposed:
+    private double readMetric(String name, String statistic) {
+        try {
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(
+                            URI.create(baseUrl + "/actuator/metrics/" + name)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return Double.NaN;
+            }
+            for (JsonNode measurement : OBJECT_MAPPER.readTree(response.body()).path("measurements")) {
+                if (statistic.equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return Double.NaN;
+        } catch (IOException e) {
+            return Double.NaN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Double.NaN;
+        }
+    }
+
+    private record ServerMetrics(long nanoTime, double allocatedBytes, double gcPauseSeconds) {
+    }
+
+    private static class ClientResult {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<String, Integer> errors = new TreeMap<>();
+
+        void record(long latencyNanos, String error) {
+            if (error != null) {
+                errors.merge(error, 1, Integer::sum);
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+    }
+
+    static class RunResult {
+        private long[] latencies = new long[0];
+        private final Map<String, Integer> errors = new TreeMap<>();
+        private long elapsedNanos;
+
+        void add(ClientResult clientResult) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + clientResult.count);
+            System.arraycopy(clientResult.latencies, 0, latencies, offset, clientResult.count);
+            clientResult.errors.forEach((error, count) -> errors.merge(error, count, Integer::sum));
+        }
+
+        void print(ServerMetrics before, ServerMetrics after) {
+            Arrays.sort(latencies);
+            int failed = errors.values().stream().mapToInt(Integer::intValue).sum();
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("Requests:    %d ok, %d failed in %.1fs%n", latencies.length, failed, seconds);
+            System.out.printf("Throughput:  %.2f ok requests/s%n", latencies.length / seconds);
+            if (latencies.length > 0) {
+                System.out.printf("Latency ms:  p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                        percentile(0.50), percentile(0.90), percentile(0.99), percentile(0.999),
+                        latencies[latencies.length - 1] / 1e6);
+            }
+            errors.forEach((error, count) -> System.out.printf("Errors:      %s x %d%n", error, count));
+            double windowSeconds = (after.nanoTime() - before.nanoTime()) / 1e9;
+            double allocated = after.allocatedBytes() - before.allocatedBytes();
+            if (Double.isNaN(allocated)) {
+                System.out.println("Server:      allocation metrics unavailable (is /actuator/metrics exposed?)");
+            } else {
+                System.out.printf("Server:      %.1f MB/s allocated, %.0f KB per request, %.2fs in GC pauses%n",
+                        allocated / windowSeconds / (1024 * 1024),
+                        allocated / Math.max(1, latencies.length + failed) / 1024,
+                        after.gcPauseSeconds() - before.gcPauseSeconds());
+            }
+        }
+
+        private double percentile(double quantile) {
+            int index = (int) Math.ceil(quantile * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.loadtest;
+
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.DbType;
+import io.aws.bedrock.dataexploration.entity.QueryJob;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Session;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Prepares the local stand-ins for a load test: creates the source and job tables in DynamoDB Local, registers
+ * the local PostgreSQL and Neo4j (Bolt) databases as data sources, and loads a generated movie graph into Neo4j.
+ * The PostgreSQL sample data is loaded by the container's init script ({@code load-test/postgres/init.sql}).
+ * <p>
+ * Connection URLs are registered as the application will see them (by default, the docker compose service
+ * names), which can differ from the URLs this seeder uses to reach the same containers. Pass
+ * {@code --postgres-reader-urls} (comma-separated) to register read replicas of the PostgreSQL database.
+ */
+public class LoadTestSeeder {
+
+    private static final String POSTGRES_SCHEMA = """
+            CREATE TABLE customer (customer_id integer PRIMARY KEY, name text, country text, signed_up date);
+            CREATE TABLE product (product_id integer PRIMARY KEY, name text, category text, price numeric(10, 2));
+            CREATE TABLE orders (order_id integer PRIMARY KEY, customer_id integer REFERENCES customer,
+                product_id integer REFERENCES product, quantity integer, ordered_at timestamp);""";
+
+    private static final String NEO4J_SCHEMA = """
+            Node labels and properties:
+            movie {title: STRING, year: INTEGER, genre: STRING}
+            artist {name: STRING, born: INTEGER}
+            Relationships:
+            (:artist)-[:actor]->(:movie)
+            (:artist)-[:director]->(:movie)""";
+
+    public static void main(String[] args) {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        String dynamoDbEndpoint = options.get("dynamodb-endpoint", "http://localhost:8000");
+        String neo4jSeedUrl = options.get("neo4j-seed-url", "bolt://localhost:7687");
+        int movies = options.getInt("movies", 2000);
+
+        try (DynamoDbClient dynamoDbClient = DynamoDbClient.builder()
+                .endpointOverride(URI.create(dynamoDbEndpoint))
+                .build()) {
+            DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
+                    .dynamoDbClient(dynamoDbClient)
+                    .build();
+            DynamoDbTable<DatabaseInformation> sourceTable = enhancedClient.table(
+                    options.get("source-table", "data_exploration_sources"),
+                    TableSchema.fromBean(DatabaseInformation.class));
+            DynamoDbTable<QueryJob> jobTable = enhancedClient.table(options.get("job-table", "data_exploration_jobs"),
+                    TableSchema.fromBean(QueryJob.class));
+            createIfMissing(sourceTable);
+            createIfMissing(jobTable);
+
+            DatabaseInformation postgres = dataSource("loadtest-postgres", DbType.POSTGRESQL,
+                    options.get("postgres-url", "jdbc:postgresql://postgres:5432/loadtest"),
+                    options.get("postgres-secret", "loadtest/postgres"), POSTGRES_SCHEMA);
+            String readerUrls = options.get("postgres-reader-urls", "");
+            if (!readerUrls.isBlank()) {
+                postgres.setReaderConnectionUrls(Arrays.asList(readerUrls.split(",")));
+            }
+            sourceTable.putItem(postgres);
+            sourceTable.putItem(dataSource("loadtest-neo4j", DbType.NEPTUNE,
+                    options.get("neo4j-url", "bolt://neo4j:7687"), null, NEO4J_SCHEMA));
+        }
+        System.out.println("Registered data sources in DynamoDB at " + dynamoDbEndpoint);
+
+        try (Driver driver = GraphDatabase.driver(neo4jSeedUrl, AuthTokens.none(),
+                Config.builder().withoutEncryption().build());
+             Session session = driver.session()) {
+            session.run("MATCH (n) DETACH DELETE n");
+            session.run("""
+                    UNWIND range(1, $movies) AS i
+                    CREATE (:movie {title: 'Movie ' + i, year: 1950 + i % 75,
+                        genre: ['Drama', 'Comedy', 'Action', 'Horror', 'Documentary'][i % 5]})""",
+                    Map.of("movies", movies));
+            session.run("""
+                    UNWIND range(1, $artists) AS i
+                    CREATE (:artist {name: 'Artist ' + i, born: 1920 + i % 80})""",
+                    Map.of("artists", movies / 2));
+            session.run("CREATE INDEX movie_title IF NOT EXISTS FOR (m:movie) ON (m.title)");
+            session.run("CREATE INDEX artist_name IF NOT EXISTS FOR (a:artist) ON (a.name)");
+            // Every movie gets a director and a handful of actors, picked deterministically so runs are comparable:
+            session.run("""
+                    MATCH (m:movie)
+                    WITH m, toInteger(substring(m.title, 6)) AS i
+                    MATCH (d:artist {name: 'Artist ' + (1 + i % $artists)})
+                    CREATE (d)-[:director]->(m)
+                    WITH m, i
+                    UNWIND range(1, 5) AS k
+                    MATCH (a:artist {name: 'Artist ' + (1 + (i * 7 + k * 13) % $artists)})
+                    CREATE (a)-[:actor]->(m)""",
+                    Map.of("artists", movies / 2));
+        }
+        System.out.println("Loaded " + movies + " movies into Neo4j at " + neo4jSeedUrl);
+    }
+
+    private static <T> void createIfMissing(DynamoDbTable<T> table) {
+        try {
+            table.createTable();
+        } catch (ResourceInUseException e) {
+            // Already created by an earlier run.
+        }
+    }
+
+    private static DatabaseInformation dataSource(String name, DbType dbType, String connectionUrl,
+            String credentialsSecret, String schema) {
+        DatabaseInformation databaseInformation = new DatabaseInformation();
+        databaseInformation.setDatabaseName(name);
+        databaseInformation.setDbType(dbType);
+        databaseInformation.setConnectionUrl(connectionUrl);
+        databaseInformation.setDatabaseCredentialsSsm(credentialsSecret);
+        databaseInformation.setSchema(schema);
+        return databaseInformation;
+    }
+}
@@ -2,61 +2,174 @@
 // SPDX-License-Identifier: MIT-0
 package io.aws.bedrock.dataexploration.service;
 
-import java.nio.charset.Charset;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import io.aws.bedrock.dataexploration.config.AwsClients;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.BedrockPrompt;
 import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
 
+/**
+ * Calls the model with the Anthropic messages format: each database's instructions and schema go into the
+ * system prompt, and only the question into the user message. With {@code bedrockPromptCaching} enabled the
+ * system prompt is marked as a cache point, so repeated questions to the same database skip re-processing the
+ * schema tokens. Model call latency is published as {@code dataexploration.bedrock.invoke}, tagged with
+ * whether the prompt prefix was read from or written to the cache.
+ * <p>
+ * Calls go through the asynchronous client, so that a cancelled question can abort its call to the model.
+ */
 @Service
-public class BedrockService {
+public class BedrockService implements DisposableBean {
+
+    private static final String ANTHROPIC_VERSION = "bedrock-2023-05-31";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // Shared so its HTTP connection pool (and TLS sessions) are reused across questions:
+    private final BedrockRuntimeAsyncClient bedrockRuntimeClient;
+    private final String modelId;
+    private final boolean promptCaching;
+    private final MeterRegistry meterRegistry;
+    private final Counter uncachedInputTokens;
+    private final Counter cacheReadInputTokens;
+    private final Counter cacheWriteInputTokens;
+
+    public BedrockService(DataExplorationProperties dataExplorationProperties, MeterRegistry meterRegistry) {
+        this.bedrockRuntimeClient = AwsClients.withEndpoint(BedrockRuntimeAsyncClient.builder(),
+                dataExplorationProperties.getBedrockEndpoint()).build();
+        this.modelId = dataExplorationProperties.getBedrockModelId();
+        this.promptCaching = dataExplorationProperties.isBedrockPromptCaching();
+        this.meterRegistry = meterRegistry;
+        this.uncachedInputTokens = inputTokenCounter("uncached");
+        this.cacheReadInputTokens = inputTokenCounter("cache_read");
+        this.cacheWriteInputTokens = inputTokenCounter("cache_write");
+    }
 
-    public BedrockResult callBedrock(String prompt) throws JsonProcessingException {
-        BedrockRuntimeClient bedrockRuntimeClient = BedrockRuntimeClient.builder().build();
-        ObjectNode bedrockBody = createBedrockBody(prompt);
-        InvokeModelRequest request = InvokeModelRequest.builder()
-                .modelId("anthropic.claude-v2")
-                .body(SdkBytes.fromString(bedrockBody.toString(), Charset.defaultCharset()))
-                .build();
-        InvokeModelResponse invokeModel = bedrockRuntimeClient.invokeModel(request);
+    public BedrockResult callBedrock(BedrockPrompt prompt, CancellationToken cancellationToken) throws IOException {
+        ObjectNode bedrockBody = createBedrockBody(prompt, 512);
+        long start = System.nanoTime();
+        CompletableFuture<InvokeModelResponse> call = invokeModel(bedrockBody);
+        InvokeModelResponse invokeModel;
+        try (CancellationToken.Registration registration = cancellationToken.onCancel("bedrock",
+                () -> call.cancel(true))) {
+            invokeModel = call.join();
+        } catch (CancellationException e) {
+            cancellationToken.throwIfCancelled();
+            throw e;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        long elapsedNanos = System.nanoTime() - start;
 
-        return extractBedrockResult(invokeModel);
+        JsonNode response = objectMapper.readTree(invokeModel.body().asByteArray());
+        recordUsage(response.path("usage"), elapsedNanos);
+        return extractBedrockResult(response);
     }
 
-    private BedrockResult extractBedrockResult(InvokeModelResponse invokeModel) {
-        String bedrockResponse = invokeModel.body().asUtf8String();
+    /**
+     * Sends a minimal one-token request, so the connection to Bedrock is already established (and the SDK's
+     * request pipeline class-loaded) before the first user question.
+     */
+    public void warmUp() {
+        invokeModel(createBedrockBody(new BedrockPrompt(null, "Hello"), 1)).join();
+    }
+
+    @Override
+    public void destroy() {
+        bedrockRuntimeClient.close();
+    }
+
+    // Cancelling the returned future aborts the HTTP request:
+    private CompletableFuture<InvokeModelResponse> invokeModel(ObjectNode bedrockBody) {
+        return bedrockRuntimeClient.invokeModel(InvokeModelRequest.builder()
+                .modelId(modelId)
+                .contentType("application/json")
+                .accept("application/json")
+                .body(SdkBytes.fromString(bedrockBody.toString(), StandardCharsets.UTF_8))
+                .build());
+    }
+
+    private BedrockResult extractBedrockResult(JsonNode response) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode content : response.path("content")) {
+            if ("text".equals(content.path("type").asText())) {
+                text.append(content.path("text").asText());
+            }
+        }
+        String bedrockResponse = text.toString();
         int startSql = bedrockResponse.indexOf("<query>");
         int endSql = bedrockResponse.indexOf("</query>");
         int startExplanation = bedrockResponse.indexOf("<explanation>");
         int endExplanation = bedrockResponse.indexOf("</explanation>");
-        String sql = bedrockResponse.substring(startSql + "<query>".length(), endSql).replaceAll("\\\\n", " ")
-                .replaceAll("\n", " ").replaceAll("\\\\\"", "\"");
+        String sql = bedrockResponse.substring(startSql + "<query>".length(), endSql).replaceAll("\n", " ");
         String explanation = bedrockResponse.substring(startExplanation + "<explanation>".length(), endExplanation)
-                .replaceAll("\\\\n", " ").replaceAll("\n", " ").replaceAll("\\\\\"", "\"");
+                .replaceAll("\n", " ");
         return new BedrockResult(explanation, sql);
     }
 
-    private ObjectNode createBedrockBody(String prompt) {
+    private ObjectNode createBedrockBody(BedrockPrompt prompt, int maxTokens) {
         ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("prompt", prompt);
-        objectNode.put("max_tokens_to_sample", 512);
+        objectNode.put("anthropic_version", ANTHROPIC_VERSION);
+        objectNode.put("max_tokens", maxTokens);
         objectNode.put("temperature", 0);
         objectNode.put("top_k", 250);
         objectNode.put("top_p", 1);
-        ArrayNode stopSequences = objectMapper.createArrayNode();
-        stopSequences.add("\\nHuman:");
-        objectNode.set("stop_sequences", stopSequences);
+        if (prompt.system() != null) {
+            ObjectNode systemBlock = objectNode.putArray("system").addObject();
+            systemBlock.put("type", "text");
+            systemBlock.put("text", prompt.system());
+            if (promptCaching) {
+                systemBlock.putObject("cache_control").put("type", "ephemeral");
+            }
+        }
+        ArrayNode messages = objectNode.putArray("messages");
+        ObjectNode userMessage = messages.addObject();
+        userMessage.put("role", "user");
+        ObjectNode userContent = userMessage.putArray("content").addObject();
+        userContent.put("type", "text");
+        userContent.put("text", prompt.userMessage());
         return objectNode;
     }
 
+    private void recordUsage(JsonNode usage, long elapsedNanos) {
+        long cacheRead = usage.path("cache_read_input_tokens").asLong();
+        long cacheWrite = usage.path("cache_creation_input_tokens").asLong();
+        uncachedInputTokens.increment(usage.path("input_tokens").asLong());
+        cacheReadInputTokens.increment(cacheRead);
+        cacheWriteInputTokens.increment(cacheWrite);
+        String promptCache = cacheRead > 0 ? "read" : cacheWrite > 0 ? "write" : "none";
+        Timer.builder("dataexploration.bedrock.invoke")
+                .description("Latency of model calls, by use of the prompt cache")
+                .tag("promptCache", promptCache)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter inputTokenCounter(String type) {
+        return Counter.builder("dataexploration.bedrock.input.tokens")
+                .description("Prompt tokens sent to the model")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
 }
@@ -6,8 +6,10 @@ import java.util.HashSet;
 
 import org.springframework.stereotype.Service;
 
+import io.aws.bedrock.dataexploration.config.AwsClients;
 import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.QueryJob;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
@@ -17,9 +19,9 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 @Service
 public class DynamoDbService {
 
-    private final DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(
-            DynamoDbClient.builder().build()).build();
+    private final DynamoDbEnhancedClient enhancedClient;
     private final DynamoDbTable<DatabaseInformation> databaseTable;
+    private final DynamoDbTable<QueryJob> jobTable;
 
     private final DataExplorationProperties dataExplorationProperties;
 
@@ -27,8 +29,12 @@ public class DynamoDbService {
 
     public DynamoDbService(DataExplorationProperties dataExplorationProperties) {
         this.dataExplorationProperties = dataExplorationProperties;
+        this.enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(AwsClients.withEndpoint(
+                DynamoDbClient.builder(), dataExplorationProperties.getDynamoDbEndpoint()).build()).build();
         this.databaseTable = enhancedClient.table(dataExplorationProperties.getDynamoTableName(),
                 TableSchema.fromBean(DatabaseInformation.class));
+        this.jobTable = enhancedClient.table(dataExplorationProperties.getJobTableName(),
+                TableSchema.fromBean(QueryJob.class));
     }
 
     public void storeDatabaseEntry(DatabaseInformation databaseInformation) {
@@ -52,4 +58,12 @@ public class DynamoDbService {
     public DatabaseInformation getDatabaseItem(String key) {
         return databaseTable.getItem(Key.builder().partitionValue(key).build());
     }
+
+    public void storeJob(QueryJob queryJob) {
+        jobTable.putItem(queryJob);
+    }
+
+    public QueryJob getJob(String jobId) {
+        return jobTable.getItem(Key.builder().partitionValue(jobId).build());
+    }
 }
@@ -2,19 +2,32 @@
 // SPDX-License-Identifier: MIT-0
 package io.aws.bedrock.dataexploration.service;
 
+import io.aws.bedrock.dataexploration.entity.BedrockPrompt;
 import io.aws.bedrock.dataexploration.entity.BedrockResult;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.service.answercache.AnswerCache;
+import io.aws.bedrock.dataexploration.service.bulkhead.BulkheadRegistry;
+import io.aws.bedrock.dataexploration.service.bulkhead.BulkheadRejectedException;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.cancellation.QueryCancelledException;
 import io.aws.bedrock.dataexploration.service.promptgenerator.AthenaPromptGenerator;
 import io.aws.bedrock.dataexploration.service.promptgenerator.NeptunePromptGenerator;
 import io.aws.bedrock.dataexploration.service.promptgenerator.PostgreSqlPromptGenerator;
+import io.aws.bedrock.dataexploration.service.questioncache.QuestionCache;
 import io.aws.bedrock.dataexploration.service.queryexecution.AthenaQueryExecutor;
 import io.aws.bedrock.dataexploration.service.queryexecution.NeptuneQueryExecutor;
 import io.aws.bedrock.dataexploration.service.queryexecution.PostgreSqlQueryExecutor;
+import io.aws.bedrock.dataexploration.service.queryexecution.QueryExecutor;
+import io.aws.bedrock.dataexploration.service.startup.StartupTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 public class UserQueryExecutionService {
 
@@ -27,11 +40,17 @@ public class UserQueryExecutionService {
     private final NeptuneQueryExecutor neptuneQueryExecutor;
     private final AthenaQueryExecutor athenaQueryExecutor;
     private final PostgreSqlQueryExecutor postgreSqlQueryExecutor;
+    private final StartupTimer startupTimer;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final QuestionCache questionCache;
+    private final AnswerCache answerCache;
 
     public UserQueryExecutionService(DynamoDbService dynamoDbService, BedrockService bedrockService,
             PostgreSqlPromptGenerator postgreSqlPromptGenerator, NeptunePromptGenerator neptunePromptGenerator,
             AthenaPromptGenerator athenaPromptGenerator, NeptuneQueryExecutor neptuneQueryExecutor,
-            AthenaQueryExecutor athenaQueryExecutor, PostgreSqlQueryExecutor postgreSqlQueryExecutor) {
+            AthenaQueryExecutor athenaQueryExecutor, PostgreSqlQueryExecutor postgreSqlQueryExecutor,
+            StartupTimer startupTimer, BulkheadRegistry bulkheadRegistry, QuestionCache questionCache,
+            AnswerCache answerCache) {
         this.dynamoDbService = dynamoDbService;
         this.bedrockService = bedrockService;
         this.postgreSqlPromptGenerator = postgreSqlPromptGenerator;
@@ -40,11 +59,71 @@ public class UserQueryExecutionService {
         this.neptuneQueryExecutor = neptuneQueryExecutor;
         this.athenaQueryExecutor = athenaQueryExecutor;
         this.postgreSqlQueryExecutor = postgreSqlQueryExecutor;
+        this.startupTimer = startupTimer;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.questionCache = questionCache;
+        this.answerCache = answerCache;
     }
 
-    public QueryResult executeQuery(String databaseName, String userQuestion) throws ClassNotFoundException {
+    public QueryResult executeQuery(String databaseName, String userQuestion, CancellationToken cancellationToken)
+            throws ClassNotFoundException {
         DatabaseInformation databaseItem = dynamoDbService.getDatabaseItem(databaseName);
-        String prompt = "";
+        // Popular questions are usually answered from a result kept warm in the background:
+        QueryResult precomputed = answerCache.lookup(databaseItem, userQuestion);
+        if (precomputed != null) {
+            startupTimer.recordAnswer();
+            return precomputed;
+        }
+        BedrockResult bedrockResult = generateQuery(databaseItem, userQuestion, cancellationToken);
+        QueryResult queryResult = executeGeneratedQuery(databaseItem, userQuestion, bedrockResult,
+                cancellationToken);
+        answerCache.store(databaseItem, userQuestion, queryResult);
+        startupTimer.recordAnswer();
+        return queryResult;
+    }
+
+    /**
+     * @throws BulkheadRejectedException if the data source is already running as many queries as it's allowed to
+     * @throws QueryCancelledException if the question was cancelled before the query finished
+     */
+    public QueryResult executeGeneratedQuery(DatabaseInformation databaseItem, String userQuestion,
+            BedrockResult bedrockResult, CancellationToken cancellationToken) {
+        QueryResult queryResult = null;
+        try (BulkheadRegistry.Permit permit = bulkheadRegistry.acquire(databaseItem, cancellationToken)) {
+            queryResult = getQueryExecutor(databaseItem).executeQuery(databaseItem, bedrockResult.getQuery(),
+                    cancellationToken);
+            queryResult.setBedrockResult(bedrockResult);
+            queryResult.setDatabaseName(databaseItem.getDatabaseName());
+            questionCache.recordSuccess(databaseItem, userQuestion, bedrockResult);
+        } catch (BulkheadRejectedException | QueryCancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            // An aborted query fails with whatever error its driver reports:
+            cancellationToken.throwIfCancelled();
+            String message = "Executing the query failed for bedrock result: " + bedrockResult;
+            LOGGER.error(message, e);
+            throw new RuntimeException(message, e);
+        }
+        return queryResult;
+    }
+
+    /**
+     * Generates the query for a question with Bedrock, unless a similar enough question was already answered.
+     */
+    public BedrockResult generateQuery(DatabaseInformation databaseItem, String userQuestion,
+            CancellationToken cancellationToken) {
+        QuestionCache.CachedAnswer cachedAnswer = questionCache.lookup(databaseItem, userQuestion);
+        if (cachedAnswer != null) {
+            questionCache.verifyInBackground(databaseItem, userQuestion, cachedAnswer,
+                    () -> callBedrock(databaseItem, userQuestion, CancellationToken.NONE));
+            return cachedAnswer.bedrockResult();
+        }
+        return callBedrock(databaseItem, userQuestion, cancellationToken);
+    }
+
+    private BedrockResult callBedrock(DatabaseInformation databaseItem, String userQuestion,
+            CancellationToken cancellationToken) {
+        BedrockPrompt prompt = null;
         switch (databaseItem.getDbType()) {
 
             case POSTGRESQL -> {
@@ -57,34 +136,47 @@ public class UserQueryExecutionService {
                 prompt = athenaPromptGenerator.generatePrompt(databaseItem, userQuestion);
             }
         }
-        BedrockResult bedrockResult = null;
         try {
-            bedrockResult = bedrockService.callBedrock(prompt);
+            return bedrockService.callBedrock(prompt, cancellationToken);
+        } catch (QueryCancelledException e) {
+            throw e;
         } catch (Exception e) {
+            cancellationToken.throwIfCancelled();
             String message = "Error calling Bedrock";
             LOGGER.error(message, e);
             throw new RuntimeException(message, e);
         }
-        QueryResult queryResult = null;
-        try {
-            switch (databaseItem.getDbType()) {
+    }
 
-                case POSTGRESQL -> {
-                    queryResult = postgreSqlQueryExecutor.executeQuery(databaseItem, bedrockResult.getQuery());
-                }
-                case NEPTUNE -> {
-                    queryResult = neptuneQueryExecutor.executeQuery(databaseItem, bedrockResult.getQuery());
-                }
-                case ATHENA -> {
-                    queryResult = athenaQueryExecutor.executeQuery(databaseItem, bedrockResult.getQuery());
-                }
-            }
-            queryResult.setBedrockResult(bedrockResult);
+    public void exportQueryResult(DatabaseInformation databaseItem, String userQuestion, BedrockResult bedrockResult,
+            OutputStream outputStream, CancellationToken cancellationToken) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("query", bedrockResult.getQuery());
+        metadata.put("explanation", bedrockResult.getExplanation());
+        try (BulkheadRegistry.Permit permit = bulkheadRegistry.acquire(databaseItem, cancellationToken)) {
+            getQueryExecutor(databaseItem).exportArrowStream(databaseItem, bedrockResult.getQuery(), metadata,
+                    outputStream, cancellationToken);
+            questionCache.recordSuccess(databaseItem, userQuestion, bedrockResult);
+            startupTimer.recordAnswer();
+        } catch (BulkheadRejectedException | QueryCancelledException e) {
+            throw e;
         } catch (Exception e) {
-            String message = "Executing the query failed for bedrock result: " + bedrockResult;
+            cancellationToken.throwIfCancelled();
+            String message = "Exporting the query failed for bedrock result: " + bedrockResult;
             LOGGER.error(message, e);
             throw new RuntimeException(message, e);
         }
-        return queryResult;
+    }
+
+    public void warmUpDataSource(DatabaseInformation databaseItem) throws ClassNotFoundException {
+        getQueryExecutor(databaseItem).warmUp(databaseItem);
+    }
+
+    private QueryExecutor getQueryExecutor(DatabaseInformation databaseItem) {
+        return switch (databaseItem.getDbType()) {
+            case POSTGRESQL -> postgreSqlQueryExecutor;
+            case NEPTUNE -> neptuneQueryExecutor;
+            case ATHENA -> athenaQueryExecutor;
+        };
     }
 }
@@ -0,0 +1,237 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.answercache;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the results of each database's most asked questions, so they can be answered without a model call or
+ * a query. Every question asked is counted (see {@link QuestionPopularity}), and only the top
+ * {@code answerCacheTopQuestions} of each database, asked at least {@code answerCacheMinAsks} times recently, have
+ * their results kept, for up to {@code answerCacheTtl}. {@link AnswerRefresher} recomputes them before they
+ * expire.
+ * <p>
+ * Cached results are handed to every asker, so they're never closed; only results that fit on the heap are
+ * kept, leaving spilled ones to be cleaned up as usual. All kept results together stay within
+ * {@code answerCacheMaxBytes} of (estimated) heap, evicting the answers of the least asked questions first.
+ */
+@Service
+public class AnswerCache {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int topQuestions;
+    private final double minAsks;
+    private final long popularityHalfLifeMillis;
+    private final long maxBytes;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DatabaseAnswers> databases = new ConcurrentHashMap<>();
+
+    public AnswerCache(DataExplorationProperties dataExplorationProperties, MeterRegistry meterRegistry) {
+        this.enabled = dataExplorationProperties.isAnswerCacheEnabled();
+        this.ttlMillis = dataExplorationProperties.getAnswerCacheTtl().toMillis();
+        this.topQuestions = dataExplorationProperties.getAnswerCacheTopQuestions();
+        this.minAsks = dataExplorationProperties.getAnswerCacheMinAsks();
+        this.popularityHalfLifeMillis = dataExplorationProperties.getAnswerCachePopularityHalfLife().toMillis();
+        this.maxBytes = dataExplorationProperties.getAnswerCacheMaxBytes();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts the question as asked.
+     *
+     * @return its cached result, if it's popular and its answer is still fresh for the current schema, or null
+     */
+    public QueryResult lookup(DatabaseInformation databaseInformation, String question) {
+        if (!enabled) {
+            return null;
+        }
+        DatabaseAnswers databaseAnswers = getDatabaseAnswers(databaseInformation.getDatabaseName());
+        String key = key(question);
+        databaseAnswers.popularity.record(key, question, System.currentTimeMillis());
+        Answer answer = databaseAnswers.answers.get(key);
+        if (answer == null || answer.isExpired(System.currentTimeMillis())
+                || !answer.schemaHash().equals(schemaHash(databaseInformation))) {
+            databaseAnswers.misses.increment();
+            return null;
+        }
+        databaseAnswers.hits.increment();
+        return answer.queryResult();
+    }
+
+    /**
+     * Keeps a freshly computed result, if the question is currently one of the database's most asked.
+     *
+     * @return whether the result was kept
+     */
+    public boolean store(DatabaseInformation databaseInformation, String question, QueryResult queryResult) {
+        long bytes = queryResult.getValues().getHeapBytes();
+        if (!enabled || queryResult.getValues().isSpilled() || bytes > maxBytes) {
+            return false;
+        }
+        DatabaseAnswers databaseAnswers = getDatabaseAnswers(databaseInformation.getDatabaseName());
+        String key = key(question);
+        if (!databaseAnswers.popularCounts.containsKey(key)) {
+            return false;
+        }
+        Answer answer = new Answer(schemaHash(databaseInformation), queryResult, bytes,
+                System.currentTimeMillis() + ttlMillis);
+        databaseAnswers.answers.put(key, answer);
+        evictOverBudget();
+        return databaseAnswers.answers.get(key) == answer;
+    }
+
+    /**
+     * @return whether the result is one of the cached answers, which are shared and so mustn't be closed
+     */
+    public boolean holds(QueryResult queryResult) {
+        for (DatabaseAnswers databaseAnswers : databases.values()) {
+            for (Answer answer : databaseAnswers.answers.values()) {
+                if (answer.queryResult() == queryResult) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Works out the database's current most asked questions, and drops the answers of questions that no longer
+     * are.
+     *
+     * @return the most asked questions, most asked first, each with its cached answer if there is one
+     */
+    List<PopularQuestion> popularQuestions(String databaseName) {
+        DatabaseAnswers databaseAnswers = getDatabaseAnswers(databaseName);
+        List<QuestionPopularity.Popular> top = databaseAnswers.popularity.top(topQuestions, minAsks,
+                System.currentTimeMillis());
+        Map<String, Double> popularCounts = new HashMap<>();
+        List<PopularQuestion> popularQuestions = new ArrayList<>();
+        for (QuestionPopularity.Popular popular : top) {
+            popularCounts.put(popular.key(), popular.count());
+            popularQuestions.add(new PopularQuestion(popular.key(), popular.question(),
+                    databaseAnswers.answers.get(popular.key())));
+        }
+        databaseAnswers.popularCounts = popularCounts;
+        databaseAnswers.answers.keySet().retainAll(popularCounts.keySet());
+        return popularQuestions;
+    }
+
+    /**
+     * Drops the answers of the least asked questions, across all databases, until the rest fit the byte budget.
+     */
+    private synchronized void evictOverBudget() {
+        long totalBytes = 0;
+        List<Evictable> evictable = new ArrayList<>();
+        for (DatabaseAnswers databaseAnswers : databases.values()) {
+            Map<String, Double> popularCounts = databaseAnswers.popularCounts;
+            for (Map.Entry<String, Answer> entry : databaseAnswers.answers.entrySet()) {
+                totalBytes += entry.getValue().bytes();
+                evictable.add(new Evictable(databaseAnswers, entry.getKey(), entry.getValue(),
+                        popularCounts.getOrDefault(entry.getKey(), 0.0)));
+            }
+        }
+        evictable.sort(Comparator.comparingDouble(Evictable::count));
+        for (int i = 0; i < evictable.size() && totalBytes > maxBytes; i++) {
+            Evictable candidate = evictable.get(i);
+            if (candidate.databaseAnswers().answers.remove(candidate.key(), candidate.answer())) {
+                totalBytes -= candidate.answer().bytes();
+                candidate.databaseAnswers().evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * @return the databases that have been asked questions since startup
+     */
+    Set<String> databaseNames() {
+        return databases.keySet();
+    }
+
+    static String schemaHash(DatabaseInformation databaseInformation) {
+        return Integer.toHexString(Objects.hashCode(databaseInformation.getSchema()));
+    }
+
+    // Answers are handed out without any check, so only case, spacing and trailing punctuation are ignored. Dropping
+    // filler words would make "flights from Boston to Denver" and "flights to Boston from Denver" the same question:
+    private static String key(String question) {
+        return question.trim().replaceAll("[\\p{Punct}\\s]+$", "").replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private DatabaseAnswers getDatabaseAnswers(String databaseName) {
+        return databases.computeIfAbsent(databaseName, this::createDatabaseAnswers);
+    }
+
+    private DatabaseAnswers createDatabaseAnswers(String databaseName) {
+        DatabaseAnswers databaseAnswers = new DatabaseAnswers(new QuestionPopularity(popularityHalfLifeMillis),
+                lookupCounter(databaseName, "hit"), lookupCounter(databaseName, "miss"),
+                Counter.builder("dataexploration.answer.cache.evictions")
+                        .description("Answers dropped to stay within the answer cache's byte budget")
+                        .tag("database", databaseName)
+                        .register(meterRegistry));
+        Gauge.builder("dataexploration.answer.cache.entries", databaseAnswers.answers, Map::size)
+                .description("Precomputed answers held for popular questions")
+                .tag("database", databaseName)
+                .register(meterRegistry);
+        return databaseAnswers;
+    }
+
+    private Counter lookupCounter(String databaseName, String result) {
+        return Counter.builder("dataexploration.answer.cache.lookups")
+                .description("Answer cache lookups")
+                .tag("database", databaseName).tag("result", result)
+                .register(meterRegistry);
+    }
+
+    record Answer(String schemaHash, QueryResult queryResult, long bytes, long expiresAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    record PopularQuestion(String key, String question, Answer answer) {
+    }
+
+    private record Evictable(DatabaseAnswers databaseAnswers, String key, Answer answer, double count) {
+    }
+
+    private static final class DatabaseAnswers {
+
+        private final QuestionPopularity popularity;
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter evictions;
+        private final Map<String, Answer> answers = new ConcurrentHashMap<>();
+        // The most asked questions as of the last refresh round, with how often they were asked:
+        private volatile Map<String, Double> popularCounts = Map.of();
+
+        private DatabaseAnswers(QuestionPopularity popularity, Counter hits, Counter misses, Counter evictions) {
+            this.popularity = popularity;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.answercache;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties.AnswerRefreshSettings;
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.service.DynamoDbService;
+import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import io.aws.bedrock.dataexploration.service.bulkhead.BulkheadRejectedException;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Recomputes the answers of each database's most asked questions (see {@link AnswerCache}) in the background,
+ * before they expire, so that popular questions are always answered from a warm result.
+ * <p>
+ * An answer is recomputed once it's within {@code answerCacheRefreshAhead} of expiring, or when the database
+ * schema has changed. While the schema is unchanged the stored query is simply re-run, without a model call.
+ * Each database can set quiet hours (in its own time zone), during which it isn't queried in the background,
+ * and a budget of background queries it runs at once (by name or {@code DbType}, like the bulkheads).
+ * Background queries also go through the database's bulkhead, and are skipped until the next round when it's
+ * busy. A question whose refresh failed, or whose result couldn't be kept, is left alone for
+ * {@code answerRefreshBackoff}, doubling with every further failure, rather than re-run every round.
+ */
+@Service
+public class AnswerRefresher implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnswerRefresher.class);
+    private static final int DEFAULT_MAX_CONCURRENT = 1;
+    private static final int MAX_BACKOFF_DOUBLINGS = 5;
+
+    private final AnswerCache answerCache;
+    private final DynamoDbService dynamoDbService;
+    private final UserQueryExecutionService userQueryExecutionService;
+    private final DataExplorationProperties dataExplorationProperties;
+    private final MeterRegistry meterRegistry;
+    private final long refreshAheadMillis;
+    private final long backoffMillis;
+    private final Map<String, Semaphore> budgets = new ConcurrentHashMap<>();
+    // Questions with a refresh queued or running, so a slow one isn't queued again at the next round:
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Backoff> backoffs = new ConcurrentHashMap<>();
+    // Queued work is bounded by the per-database budgets:
+    private final ThreadPoolExecutor refreshPool;
+
+    public AnswerRefresher(AnswerCache answerCache, DynamoDbService dynamoDbService,
+            UserQueryExecutionService userQueryExecutionService, DataExplorationProperties dataExplorationProperties,
+            MeterRegistry meterRegistry) {
+        this.answerCache = answerCache;
+        this.dynamoDbService = dynamoDbService;
+        this.userQueryExecutionService = userQueryExecutionService;
+        this.dataExplorationProperties = dataExplorationProperties;
+        this.meterRegistry = meterRegistry;
+        this.refreshAheadMillis = dataExplorationProperties.getAnswerCacheRefreshAhead().toMillis();
+        this.backoffMillis = dataExplorationProperties.getAnswerRefreshBackoff().toMillis();
+        int threads = Math.max(1, dataExplorationProperties.getAnswerRefreshThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "answer-refresher-" + threadCount.incrementAndGet()));
+    }
+
+    @Scheduled(fixedDelayString = "${bedrock.data.exploration.answerCacheRefreshInterval:PT1M}")
+    public void refreshPopularAnswers() {
+        if (!answerCache.isEnabled()) {
+            return;
+        }
+        for (String databaseName : answerCache.databaseNames()) {
+            List<AnswerCache.PopularQuestion> popularQuestions = answerCache.popularQuestions(databaseName);
+            if (popularQuestions.isEmpty()) {
+                continue;
+            }
+            try {
+                refreshDatabase(databaseName, popularQuestions);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not refresh the popular answers of " + databaseName, e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refreshPool.shutdownNow();
+    }
+
+    private void refreshDatabase(String databaseName, List<AnswerCache.PopularQuestion> popularQuestions) {
+        // Read the catalog entry afresh, so a schema change is noticed:
+        DatabaseInformation databaseItem = dynamoDbService.getDatabaseItem(databaseName);
+        if (databaseItem == null) {
+            return;
+        }
+        Map<String, AnswerRefreshSettings> configured = dataExplorationProperties.getAnswerRefresh();
+        AnswerRefreshSettings byName = configured.get(databaseName);
+        AnswerRefreshSettings byType = configured.get(databaseItem.getDbType().name());
+        ZoneId zone = ZoneId.of(resolve(byName, byType, AnswerRefreshSettings::getZone, "UTC"));
+        if (QuietHours.parse(resolve(byName, byType, AnswerRefreshSettings::getQuietHours, null))
+                .contains(LocalTime.now(zone))) {
+            outcome(databaseName, "quiet_hours").increment();
+            return;
+        }
+        Semaphore budget = budgets.computeIfAbsent(databaseName, name -> new Semaphore(Math.max(1,
+                resolve(byName, byType, AnswerRefreshSettings::getMaxConcurrent, DEFAULT_MAX_CONCURRENT))));
+
+        long now = System.currentTimeMillis();
+        String schemaHash = AnswerCache.schemaHash(databaseItem);
+        Set<String> popularKeys = new HashSet<>();
+        for (AnswerCache.PopularQuestion popularQuestion : popularQuestions) {
+            String refreshKey = databaseName + "#" + popularQuestion.key();
+            popularKeys.add(refreshKey);
+            AnswerCache.Answer answer = popularQuestion.answer();
+            if (answer != null && answer.schemaHash().equals(schemaHash)
+                    && answer.expiresAtMillis() - now > refreshAheadMillis) {
+                continue;
+            }
+            Backoff backoff = backoffs.get(refreshKey);
+            if (backoff != null && now < backoff.untilMillis()) {
+                outcome(databaseName, "backing_off").increment();
+                continue;
+            }
+            if (!refreshing.add(refreshKey)) {
+                continue;
+            }
+            // Questions are most asked first, so the budget goes to the most popular ones:
+            if (!budget.tryAcquire()) {
+                refreshing.remove(refreshKey);
+                outcome(databaseName, "over_budget").increment();
+                return;
+            }
+            refreshPool.execute(() -> {
+                try {
+                    refresh(databaseItem, popularQuestion, refreshKey);
+                } finally {
+                    budget.release();
+                    refreshing.remove(refreshKey);
+                }
+            });
+        }
+        // Questions that are no longer popular start afresh if they become popular again:
+        backoffs.keySet().removeIf(key -> key.startsWith(databaseName + "#") && !popularKeys.contains(key));
+    }
+
+    private void refresh(DatabaseInformation databaseItem, AnswerCache.PopularQuestion popularQuestion,
+            String refreshKey) {
+        AnswerCache.Answer answer = popularQuestion.answer();
+        boolean reuseQuery = answer != null && answer.schemaHash().equals(AnswerCache.schemaHash(databaseItem));
+        try {
+            BedrockResult bedrockResult = reuseQuery ? answer.queryResult().getBedrockResult()
+                    : userQueryExecutionService.generateQuery(databaseItem, popularQuestion.question(),
+                    CancellationToken.NONE);
+            QueryResult queryResult = userQueryExecutionService.executeGeneratedQuery(databaseItem,
+                    popularQuestion.question(), bedrockResult, CancellationToken.NONE);
+            if (!answerCache.store(databaseItem, popularQuestion.question(), queryResult)) {
+                // Too large to keep, so recomputing it every round would only add load:
+                queryResult.getValues().close();
+                backOff(refreshKey);
+                outcome(databaseItem.getDatabaseName(), "uncacheable").increment();
+                return;
+            }
+            backoffs.remove(refreshKey);
+            outcome(databaseItem.getDatabaseName(), reuseQuery ? "reused_query" : "new_query").increment();
+        } catch (BulkheadRejectedException e) {
+            // Questions being asked right now come first; try again at the next round.
+            outcome(databaseItem.getDatabaseName(), "rejected").increment();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh the answer to \"" + popularQuestion.question() + "\"", e);
+            backOff(refreshKey);
+            outcome(databaseItem.getDatabaseName(), "failed").increment();
+        }
+    }
+
+    private void backOff(String refreshKey) {
+        backoffs.compute(refreshKey, (key, previous) -> {
+            int failures = previous == null ? 1 : previous.failures() + 1;
+            long delayMillis = backoffMillis << Math.min(failures - 1, MAX_BACKOFF_DOUBLINGS);
+            return new Backoff(System.currentTimeMillis() + delayMillis, failures);
+        });
+    }
+
+    private static <T> T resolve(AnswerRefreshSettings byName, AnswerRefreshSettings byType,
+            Function<AnswerRefreshSettings, T> getter, T defaultValue) {
+        if (byName != null && getter.apply(byName) != null) {
+            return getter.apply(byName);
+        }
+        if (byType != null && getter.apply(byType) != null) {
+            return getter.apply(byType);
+        }
+        return defaultValue;
+    }
+
+    private Counter outcome(String databaseName, String outcome) {
+        return Counter.builder("dataexploration.answer.refreshes")
+                .description("Background recomputations of popular answers, by outcome")
+                .tag("database", databaseName).tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Backoff(long untilMillis, int failures) {
+    }
+}
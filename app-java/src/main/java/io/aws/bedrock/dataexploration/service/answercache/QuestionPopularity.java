@@ -0,0 +1,78 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.answercache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How often each question has been asked of one database, as a count that halves every {@code halfLifeMillis},
+ * so popularity follows recent traffic. Rarely asked questions are forgotten, which keeps the tracked set small.
+ */
+final class QuestionPopularity {
+
+    // Below this count a question is no longer worth tracking:
+    private static final double FORGET_BELOW = 0.1;
+    private static final int MAX_TRACKED = 1000;
+
+    private final double halfLifeMillis;
+    private final Map<String, Asks> asks = new ConcurrentHashMap<>();
+
+    QuestionPopularity(long halfLifeMillis) {
+        this.halfLifeMillis = halfLifeMillis;
+    }
+
+    void record(String key, String question, long nowMillis) {
+        Asks questionAsks = asks.computeIfAbsent(key, k -> new Asks());
+        synchronized (questionAsks) {
+            questionAsks.decayTo(nowMillis, halfLifeMillis);
+            questionAsks.count += 1;
+            // Re-run the most recent wording, which is the one the next asker most likely uses:
+            questionAsks.question = question;
+        }
+    }
+
+    /**
+     * @return up to {@code limit} of the most asked questions with a count of at least {@code minCount}, most
+     *         asked first
+     */
+    List<Popular> top(int limit, double minCount, long nowMillis) {
+        List<Popular> tracked = new ArrayList<>();
+        asks.forEach((key, questionAsks) -> {
+            synchronized (questionAsks) {
+                questionAsks.decayTo(nowMillis, halfLifeMillis);
+                tracked.add(new Popular(key, questionAsks.question, questionAsks.count));
+            }
+        });
+        tracked.sort(Comparator.comparingDouble(Popular::count).reversed());
+        for (int i = 0; i < tracked.size(); i++) {
+            if (tracked.get(i).count() < FORGET_BELOW || i >= MAX_TRACKED) {
+                asks.remove(tracked.get(i).key());
+            }
+        }
+        return tracked.stream()
+                .filter(popular -> popular.count() >= Math.max(minCount, FORGET_BELOW))
+                .limit(limit)
+                .toList();
+    }
+
+    record Popular(String key, String question, double count) {
+    }
+
+    private static final class Asks {
+
+        private String question;
+        private double count;
+        private long updatedMillis;
+
+        private void decayTo(long nowMillis, double halfLifeMillis) {
+            if (updatedMillis != 0 && nowMillis > updatedMillis) {
+                count *= Math.pow(0.5, (nowMillis - updatedMillis) / halfLifeMillis);
+            }
+            updatedMillis = Math.max(updatedMillis, nowMillis);
+        }
+    }
+}
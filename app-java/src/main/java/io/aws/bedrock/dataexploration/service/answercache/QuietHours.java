@@ -0,0 +1,49 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.answercache;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times of day during which a database mustn't be queried in the background, given as comma-separated
+ * {@code HH:mm-HH:mm} ranges; a range that ends before it starts runs past midnight (e.g. {@code 22:00-06:00}).
+ */
+final class QuietHours {
+
+    static final QuietHours NONE = new QuietHours(List.of());
+
+    private final List<LocalTime[]> ranges;
+
+    private QuietHours(List<LocalTime[]> ranges) {
+        this.ranges = ranges;
+    }
+
+    static QuietHours parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        List<LocalTime[]> ranges = new ArrayList<>();
+        for (String range : value.split(",")) {
+            String[] bounds = range.trim().split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Expected quiet hours as HH:mm-HH:mm but got: " + range);
+            }
+            ranges.add(new LocalTime[]{LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim())});
+        }
+        return new QuietHours(ranges);
+    }
+
+    boolean contains(LocalTime time) {
+        for (LocalTime[] range : ranges) {
+            boolean inRange = range[0].isBefore(range[1])
+                    ? !time.isBefore(range[0]) && time.isBefore(range[1])
+                    : !time.isBefore(range[0]) || time.isBefore(range[1]);
+            if (inRange) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,347 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.arrow;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.internal.types.InternalTypeSystem;
+import org.neo4j.driver.types.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes query results as an Apache Arrow IPC stream, in record batches of
+ * {@code bedrock.data.exploration.arrowBatchSize} rows. Column types are taken from the JDBC
+ * {@link ResultSetMetaData} or inferred from the first batch of Neo4j records, so values are copied
+ * into typed vectors without converting every cell to a string first.
+ * <p>
+ * Only a complete export ends with the end-of-stream marker. If writing fails part way, e.g. because a later Neo4j
+ * value doesn't fit the type inferred for its column, the exception propagates without the marker being written,
+ * and the container then aborts the already committed response, so clients see an error rather than a short
+ * result.
+ */
+@Service
+public class ArrowStreamExporter implements DisposableBean {
+
+    public static final String ARROW_STREAM_MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArrowStreamExporter.class);
+    private static final ArrowType UTF8 = ArrowType.Utf8.INSTANCE;
+    private static final ArrowType BOOL = ArrowType.Bool.INSTANCE;
+    private static final ArrowType INT32 = new ArrowType.Int(32, true);
+    private static final ArrowType INT64 = new ArrowType.Int(64, true);
+    private static final ArrowType FLOAT64 = new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+    private static final ArrowType DATE = new ArrowType.Date(DateUnit.DAY);
+    private static final ArrowType TIMESTAMP = new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+    private static final ArrowType TIMESTAMP_UTC = new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BufferAllocator allocator = new RootAllocator();
+    private final int batchSize;
+
+    public ArrowStreamExporter(DataExplorationProperties dataExplorationProperties) {
+        this.batchSize = Math.max(1, dataExplorationProperties.getArrowBatchSize());
+    }
+
+    public long writeResultSet(ResultSet rs, Map<String, String> metadata, OutputStream outputStream)
+            throws SQLException, IOException {
+        ResultSetMetaData rsMetaData = rs.getMetaData();
+        int columnCount = rsMetaData.getColumnCount();
+        List<Field> fields = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            fields.add(new Field(rsMetaData.getColumnLabel(i), FieldType.nullable(toArrowType(rsMetaData, i)), null));
+        }
+        long rowCount = 0;
+        try (VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields, metadata), allocator)) {
+            // Not closed on failure, since closing writes the end-of-stream marker:
+            ArrowStreamWriter writer = new ArrowStreamWriter(root, null, outputStream);
+            writer.start();
+            root.allocateNew();
+            int batchRows = 0;
+            while (rs.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    setJdbcValue(root.getVector(i), batchRows, rs, i + 1);
+                }
+                rowCount++;
+                if (++batchRows == batchSize) {
+                    flushBatch(root, writer, batchRows);
+                    batchRows = 0;
+                }
+            }
+            if (batchRows > 0 || rowCount == 0) {
+                flushBatch(root, writer, batchRows);
+            }
+            writer.close();
+        }
+        LOGGER.info("Wrote {} JDBC rows as Arrow stream", rowCount);
+        return rowCount;
+    }
+
+    public long writeRecords(Result result, Map<String, String> metadata, OutputStream outputStream)
+            throws IOException {
+        List<String> keys = result.keys();
+        List<Record> firstBatch = new ArrayList<>(batchSize);
+        while (firstBatch.size() < batchSize && result.hasNext()) {
+            firstBatch.add(result.next());
+        }
+        List<Field> fields = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            fields.add(new Field(keys.get(i), FieldType.nullable(inferArrowType(firstBatch, i)), null));
+        }
+        long rowCount = 0;
+        try (VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields, metadata), allocator)) {
+            // Not closed on failure, since closing writes the end-of-stream marker:
+            ArrowStreamWriter writer = new ArrowStreamWriter(root, null, outputStream);
+            writer.start();
+            root.allocateNew();
+            int batchRows = 0;
+            for (Record record : firstBatch) {
+                setRecordValues(root, batchRows++, record);
+                rowCount++;
+            }
+            if (batchRows == batchSize) {
+                flushBatch(root, writer, batchRows);
+                batchRows = 0;
+            }
+            while (result.hasNext()) {
+                setRecordValues(root, batchRows, result.next());
+                rowCount++;
+                if (++batchRows == batchSize) {
+                    flushBatch(root, writer, batchRows);
+                    batchRows = 0;
+                }
+            }
+            if (batchRows > 0 || rowCount == 0) {
+                flushBatch(root, writer, batchRows);
+            }
+            writer.close();
+        }
+        LOGGER.info("Wrote {} Neo4j records as Arrow stream", rowCount);
+        return rowCount;
+    }
+
+    @Override
+    public void destroy() {
+        allocator.close();
+    }
+
+    private void flushBatch(VectorSchemaRoot root, ArrowStreamWriter writer, int batchRows) throws IOException {
+        root.setRowCount(batchRows);
+        writer.writeBatch();
+        root.allocateNew();
+    }
+
+    private ArrowType toArrowType(ResultSetMetaData rsMetaData, int column) throws SQLException {
+        return switch (rsMetaData.getColumnType(column)) {
+            case Types.BOOLEAN, Types.BIT -> BOOL;
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> INT32;
+            case Types.BIGINT -> INT64;
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> FLOAT64;
+            case Types.NUMERIC, Types.DECIMAL -> {
+                int precision = rsMetaData.getPrecision(column);
+                int scale = rsMetaData.getScale(column);
+                // Unconstrained numerics (e.g. PostgreSQL 'numeric') don't fit a fixed decimal type:
+                yield precision > 0 && precision <= 38 && scale >= 0 && scale <= precision
+                        ? new ArrowType.Decimal(precision, scale, 128)
+                        : UTF8;
+            }
+            case Types.DATE -> DATE;
+            case Types.TIMESTAMP -> TIMESTAMP;
+            case Types.TIMESTAMP_WITH_TIMEZONE -> TIMESTAMP_UTC;
+            default -> UTF8;
+        };
+    }
+
+    // Slots which are never set stay null, so SQL NULLs are simply skipped:
+    private void setJdbcValue(FieldVector vector, int row, ResultSet rs, int column) throws SQLException {
+        switch (vector.getMinorType()) {
+            case BIT -> {
+                boolean value = rs.getBoolean(column);
+                if (!rs.wasNull()) {
+                    ((BitVector) vector).setSafe(row, value ? 1 : 0);
+                }
+            }
+            case INT -> {
+                int value = rs.getInt(column);
+                if (!rs.wasNull()) {
+                    ((IntVector) vector).setSafe(row, value);
+                }
+            }
+            case BIGINT -> {
+                long value = rs.getLong(column);
+                if (!rs.wasNull()) {
+                    ((BigIntVector) vector).setSafe(row, value);
+                }
+            }
+            case FLOAT8 -> {
+                double value = rs.getDouble(column);
+                if (!rs.wasNull()) {
+                    ((Float8Vector) vector).setSafe(row, value);
+                }
+            }
+            case DECIMAL -> {
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value != null) {
+                    DecimalVector decimalVector = (DecimalVector) vector;
+                    decimalVector.setSafe(row, value.setScale(decimalVector.getScale(), RoundingMode.HALF_UP));
+                }
+            }
+            case DATEDAY -> {
+                Date value = rs.getDate(column);
+                if (value != null) {
+                    ((DateDayVector) vector).setSafe(row, (int) value.toLocalDate().toEpochDay());
+                }
+            }
+            case TIMESTAMPMICRO -> {
+                Timestamp value = rs.getTimestamp(column);
+                if (value != null) {
+                    LocalDateTime localDateTime = value.toLocalDateTime();
+                    ((TimeStampMicroVector) vector).setSafe(row,
+                            localDateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + localDateTime.getNano() / 1_000);
+                }
+            }
+            case TIMESTAMPMICROTZ -> {
+                Timestamp value = rs.getTimestamp(column);
+                if (value != null) {
+                    Instant instant = value.toInstant();
+                    ((TimeStampMicroTZVector) vector).setSafe(row,
+                            instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000);
+                }
+            }
+            default -> {
+                String value = rs.getString(column);
+                if (value != null) {
+                    ((VarCharVector) vector).setSafe(row, value.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    // A column only gets a primitive Arrow type if every non-null value in the first batch agrees on it:
+    private ArrowType inferArrowType(List<Record> records, int column) {
+        ArrowType inferred = null;
+        for (Record record : records) {
+            Value value = record.get(column);
+            if (value.isNull()) {
+                continue;
+            }
+            ArrowType valueType = toArrowType(value);
+            if (inferred == null) {
+                inferred = valueType;
+            } else if (!inferred.equals(valueType)) {
+                return (isNumeric(inferred) && isNumeric(valueType)) ? FLOAT64 : UTF8;
+            }
+        }
+        return inferred == null ? UTF8 : inferred;
+    }
+
+    private ArrowType toArrowType(Value value) {
+        if (value.hasType(InternalTypeSystem.TYPE_SYSTEM.BOOLEAN())) {
+            return BOOL;
+        } else if (value.hasType(InternalTypeSystem.TYPE_SYSTEM.INTEGER())) {
+            return INT64;
+        } else if (value.hasType(InternalTypeSystem.TYPE_SYSTEM.FLOAT())) {
+            return FLOAT64;
+        }
+        return UTF8;
+    }
+
+    private boolean isNumeric(ArrowType arrowType) {
+        return arrowType.equals(INT64) || arrowType.equals(FLOAT64);
+    }
+
+    // Text columns accept anything, and float columns any number. A later value that doesn't fit the type
+    // inferred from the first batch fails the export rather than being written as null:
+    private void setRecordValues(VectorSchemaRoot root, int row, Record record) {
+        for (int i = 0; i < record.size(); i++) {
+            Value value = record.get(i);
+            if (value.isNull()) {
+                continue;
+            }
+            FieldVector vector = root.getVector(i);
+            switch (vector.getMinorType()) {
+                case BIT -> {
+                    requireType(vector, value, InternalTypeSystem.TYPE_SYSTEM.BOOLEAN());
+                    ((BitVector) vector).setSafe(row, value.asBoolean() ? 1 : 0);
+                }
+                case BIGINT -> {
+                    requireType(vector, value, InternalTypeSystem.TYPE_SYSTEM.INTEGER());
+                    ((BigIntVector) vector).setSafe(row, value.asLong());
+                }
+                case FLOAT8 -> {
+                    requireType(vector, value, InternalTypeSystem.TYPE_SYSTEM.NUMBER());
+                    ((Float8Vector) vector).setSafe(row, value.asNumber().doubleValue());
+                }
+                default -> ((VarCharVector) vector).setSafe(row, toText(value).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void requireType(FieldVector vector, Value value, Type type) {
+        if (!value.hasType(type)) {
+            throw new IllegalStateException("Column " + vector.getName() + " was exported as " + type.name()
+                    + " from the first " + batchSize + " records, but holds a " + value.type().name()
+                    + " value further on. Convert it in the query, e.g. with toFloat() or toString().");
+        }
+    }
+
+    private String toText(Value value) {
+        if (value.hasType(InternalTypeSystem.TYPE_SYSTEM.STRING())) {
+            return value.asString();
+        } else if (value.hasType(InternalTypeSystem.TYPE_SYSTEM.NODE())
+                || value.hasType(InternalTypeSystem.TYPE_SYSTEM.RELATIONSHIP())) {
+            try {
+                return objectMapper.writeValueAsString(value.asMap());
+            } catch (JsonProcessingException e) {
+                LOGGER.error("Error writing value", e);
+                return "N/A";
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,293 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.bulkhead;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties.BulkheadSettings;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.cancellation.QueryCancelledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Limits how many queries run at once against each data source, so a slow backend (e.g. a long Athena scan)
+ * only ever ties up its own share of request threads instead of starving answers from the others.
+ * <p>
+ * Every database gets a bulkhead with its own reserved permits, a bounded wait queue and a maximum wait.
+ * On top of that, a shared pool of spare permits is lent to bulkheads whose own permits are all in use. When a
+ * spare permit frees up it goes to the waiting bulkhead with the lowest borrowed-permits-to-weight ratio, so
+ * spare capacity is split by weight rather than going to whichever backend queues the most work.
+ * <p>
+ * A query that finds its bulkhead's queue full is rejected immediately, and one that can't get a permit
+ * within the maximum wait (by default well under a second, as waiting holds a request thread) is rejected then,
+ * both with a {@link BulkheadRejectedException}. A query whose question is cancelled stops waiting straight away.
+ */
+@Service
+public class BulkheadRegistry {
+
+    private static final BulkheadSettings DEFAULT_SETTINGS = defaultSettings();
+
+    private final DataExplorationProperties dataExplorationProperties;
+    private final MeterRegistry meterRegistry;
+    private final int sharedCapacity;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    // All permit bookkeeping happens under this one lock, which keeps the fair hand-over of spare permits simple:
+    private final ReentrantLock lock = new ReentrantLock();
+    private int sharedInUse;
+
+    public BulkheadRegistry(DataExplorationProperties dataExplorationProperties, MeterRegistry meterRegistry) {
+        this.dataExplorationProperties = dataExplorationProperties;
+        this.meterRegistry = meterRegistry;
+        this.sharedCapacity = Math.max(0, dataExplorationProperties.getBulkheadSharedCapacity());
+        Gauge.builder("dataexploration.bulkhead.shared.in.use", this, registry -> registry.sharedInUse)
+                .description("Spare permits currently lent out to bulkheads")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a permit to query the given database. Close the returned permit once the query is done.
+     *
+     * @throws BulkheadRejectedException if the bulkhead's queue is full or no permit became free in time
+     * @throws QueryCancelledException if the question was cancelled before a permit became free
+     */
+    public Permit acquire(DatabaseInformation databaseInformation, CancellationToken cancellationToken) {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(databaseInformation.getDbType() + "/"
+                + databaseInformation.getDatabaseName(), name -> createBulkhead(name, databaseInformation));
+        lock.lock();
+        try {
+            if (bulkhead.waiters.isEmpty()) {
+                Permit permit = tryGrant(bulkhead);
+                if (permit != null) {
+                    return permit;
+                }
+            }
+            if (bulkhead.waiters.size() >= bulkhead.maxQueued) {
+                bulkhead.queueFullRejections.increment();
+                throw new BulkheadRejectedException(bulkhead.name, "the queue of " + bulkhead.maxQueued
+                        + " waiting queries is full");
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            // A cancelled question gives up its place in the queue instead of holding it until the timeout:
+            try (CancellationToken.Registration registration = cancellationToken.onCancel("bulkhead wait",
+                    () -> wakeUp(waiter))) {
+                bulkhead.waiters.addLast(waiter);
+                long remainingNanos = bulkhead.maxWait.toNanos();
+                while (waiter.permit == null && !waiter.cancelled && remainingNanos > 0) {
+                    remainingNanos = waiter.granted.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                bulkhead.waiters.remove(waiter);
+                if (waiter.permit != null) {
+                    releaseLocked(waiter.permit);
+                }
+                Thread.currentThread().interrupt();
+                throw new BulkheadRejectedException(bulkhead.name, "interrupted while waiting");
+            }
+            if (waiter.permit == null) {
+                bulkhead.waiters.remove(waiter);
+                cancellationToken.throwIfCancelled();
+                bulkhead.timeoutRejections.increment();
+                throw new BulkheadRejectedException(bulkhead.name, "no permit became free within "
+                        + bulkhead.maxWait.toMillis() + " ms");
+            }
+            return waiter.permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void wakeUp(Waiter waiter) {
+        lock.lock();
+        try {
+            waiter.cancelled = true;
+            waiter.granted.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit tryGrant(Bulkhead bulkhead) {
+        if (bulkhead.ownInUse < bulkhead.maxConcurrent) {
+            bulkhead.ownInUse++;
+            return new Permit(bulkhead, false);
+        }
+        if (sharedInUse < sharedCapacity) {
+            sharedInUse++;
+            bulkhead.sharedInUse++;
+            return new Permit(bulkhead, true);
+        }
+        return null;
+    }
+
+    private void release(Permit permit) {
+        lock.lock();
+        try {
+            releaseLocked(permit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked(Permit permit) {
+        Bulkhead bulkhead = permit.bulkhead;
+        if (permit.shared) {
+            sharedInUse--;
+            bulkhead.sharedInUse--;
+        } else {
+            bulkhead.ownInUse--;
+        }
+        // A freed reserved permit can only go to its own bulkhead:
+        if (!permit.shared && !bulkhead.waiters.isEmpty()) {
+            bulkhead.ownInUse++;
+            grant(bulkhead, new Permit(bulkhead, false));
+            return;
+        }
+        // A freed spare permit goes to whichever waiting bulkhead has borrowed the least for its weight:
+        while (sharedInUse < sharedCapacity) {
+            Bulkhead next = null;
+            for (Bulkhead candidate : bulkheads.values()) {
+                if (!candidate.waiters.isEmpty()
+                        && (next == null || candidate.borrowedShare() < next.borrowedShare())) {
+                    next = candidate;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            sharedInUse++;
+            next.sharedInUse++;
+            grant(next, new Permit(next, true));
+        }
+    }
+
+    private void grant(Bulkhead bulkhead, Permit permit) {
+        Waiter waiter = bulkhead.waiters.removeFirst();
+        waiter.permit = permit;
+        waiter.granted.signal();
+    }
+
+    private Bulkhead createBulkhead(String name, DatabaseInformation databaseInformation) {
+        Map<String, BulkheadSettings> configured = dataExplorationProperties.getBulkheads();
+        BulkheadSettings byName = configured.get(databaseInformation.getDatabaseName());
+        BulkheadSettings byType = configured.get(databaseInformation.getDbType().name());
+        Bulkhead bulkhead = new Bulkhead(name,
+                Math.max(1, resolve(byName, byType, BulkheadSettings::getMaxConcurrent)),
+                Math.max(0, resolve(byName, byType, BulkheadSettings::getMaxQueued)),
+                resolve(byName, byType, BulkheadSettings::getMaxWait),
+                Math.max(0.01, resolve(byName, byType, BulkheadSettings::getWeight)));
+
+        String dbType = databaseInformation.getDbType().name();
+        Gauge.builder("dataexploration.bulkhead.active", bulkhead, b -> b.ownInUse + b.sharedInUse)
+                .description("Queries running against the data source, including on borrowed spare permits")
+                .tag("bulkhead", name).tag("dbType", dbType)
+                .register(meterRegistry);
+        Gauge.builder("dataexploration.bulkhead.utilization", bulkhead, b -> (double) b.ownInUse / b.maxConcurrent)
+                .description("Fraction of the data source's reserved permits in use")
+                .tag("bulkhead", name).tag("dbType", dbType)
+                .register(meterRegistry);
+        Gauge.builder("dataexploration.bulkhead.borrowed", bulkhead, b -> b.sharedInUse)
+                .description("Spare permits currently borrowed by the data source")
+                .tag("bulkhead", name).tag("dbType", dbType)
+                .register(meterRegistry);
+        Gauge.builder("dataexploration.bulkhead.queued", bulkhead, b -> b.waiters.size())
+                .description("Queries waiting for a permit")
+                .tag("bulkhead", name).tag("dbType", dbType)
+                .register(meterRegistry);
+        bulkhead.queueFullRejections = Counter.builder("dataexploration.bulkhead.rejected")
+                .description("Queries rejected by the data source's bulkhead")
+                .tag("bulkhead", name).tag("dbType", dbType).tag("reason", "queue_full")
+                .register(meterRegistry);
+        bulkhead.timeoutRejections = Counter.builder("dataexploration.bulkhead.rejected")
+                .description("Queries rejected by the data source's bulkhead")
+                .tag("bulkhead", name).tag("dbType", dbType).tag("reason", "timeout")
+                .register(meterRegistry);
+        return bulkhead;
+    }
+
+    private static <T> T resolve(BulkheadSettings byName, BulkheadSettings byType,
+            Function<BulkheadSettings, T> getter) {
+        if (byName != null && getter.apply(byName) != null) {
+            return getter.apply(byName);
+        }
+        if (byType != null && getter.apply(byType) != null) {
+            return getter.apply(byType);
+        }
+        return Objects.requireNonNull(getter.apply(DEFAULT_SETTINGS));
+    }
+
+    private static BulkheadSettings defaultSettings() {
+        BulkheadSettings settings = new BulkheadSettings();
+        settings.setMaxConcurrent(4);
+        settings.setMaxQueued(8);
+        settings.setMaxWait(Duration.ofMillis(500));
+        settings.setWeight(1.0);
+        return settings;
+    }
+
+    private static class Bulkhead {
+        private final String name;
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final Duration maxWait;
+        private final double weight;
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+        private int ownInUse;
+        private int sharedInUse;
+        private Counter queueFullRejections;
+        private Counter timeoutRejections;
+
+        Bulkhead(String name, int maxConcurrent, int maxQueued, Duration maxWait, double weight) {
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWait = maxWait;
+            this.weight = weight;
+        }
+
+        double borrowedShare() {
+            return (sharedInUse + 1) / weight;
+        }
+    }
+
+    private static class Waiter {
+        private final Condition granted;
+        private Permit permit;
+        private boolean cancelled;
+
+        Waiter(Condition granted) {
+            this.granted = granted;
+        }
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final Bulkhead bulkhead;
+        private final boolean shared;
+        private boolean released;
+
+        private Permit(Bulkhead bulkhead, boolean shared) {
+            this.bulkhead = bulkhead;
+            this.shared = shared;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(this);
+            }
+        }
+    }
+}
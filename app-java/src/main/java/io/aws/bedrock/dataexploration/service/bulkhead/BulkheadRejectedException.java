@@ -0,0 +1,21 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.bulkhead;
+
+/**
+ * Thrown when a data source's bulkhead can't take another query, either because its queue is full or because
+ * no permit became free within its maximum wait.
+ */
+public class BulkheadRejectedException extends RuntimeException {
+
+    private final String bulkheadName;
+
+    public BulkheadRejectedException(String bulkheadName, String message) {
+        super("Too many concurrent queries for " + bulkheadName + ": " + message);
+        this.bulkheadName = bulkheadName;
+    }
+
+    public String getBulkheadName() {
+        return bulkheadName;
+    }
+}
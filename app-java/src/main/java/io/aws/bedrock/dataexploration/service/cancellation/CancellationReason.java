@@ -0,0 +1,25 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.cancellation;
+
+public enum CancellationReason {
+
+    CLIENT_DISCONNECTED("the client disconnected"),
+    DEADLINE_EXCEEDED("the request deadline passed"),
+    SHUTDOWN("the service is shutting down"),
+    SUPERSEDED("another database answered first");
+
+    private final String description;
+
+    CancellationReason(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    String tagValue() {
+        return name().toLowerCase();
+    }
+}
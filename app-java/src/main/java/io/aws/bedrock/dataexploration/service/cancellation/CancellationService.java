@@ -0,0 +1,38 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.cancellation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+public class CancellationService {
+
+    private final MeterRegistry meterRegistry;
+
+    public CancellationService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public CancellationToken newToken() {
+        return new CancellationToken(meterRegistry, false, null);
+    }
+
+    /**
+     * @return a token for work that's cancelled once the timeout passes
+     */
+    public CancellationToken newToken(Duration timeout) {
+        return new CancellationToken(meterRegistry, false, System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @return a token for one part of the parent's work, cancelled whenever the parent is
+     */
+    public CancellationToken newChildToken(CancellationToken parent) {
+        CancellationToken childToken = new CancellationToken(meterRegistry, true, parent.deadlineNanos());
+        parent.addChild(childToken);
+        return childToken;
+    }
+}
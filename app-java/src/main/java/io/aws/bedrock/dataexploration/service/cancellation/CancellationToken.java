@@ -0,0 +1,174 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.cancellation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stops the work done for one question once nobody is waiting for its answer any more. Model calls and queries
+ * register how to abort themselves with {@link #onCancel} for as long as they run; cancelling the token runs
+ * those actions, so e.g. a client disconnect cancels the JDBC statement instead of letting it run to completion.
+ * <p>
+ * Work split into parallel parts can give each part a child token, which is cancelled along with its parent but
+ * can also be cancelled on its own. A token can also carry its request's deadline, for backends that can enforce
+ * a timeout themselves (see {@link #timeRemaining()}).
+ * <p>
+ * Cancelled questions are counted as {@code dataexploration.requests.cancelled}, and each operation aborted
+ * on the way as {@code dataexploration.operations.cancelled}, both tagged with the {@link CancellationReason}.
+ * Cancelling a child token only counts its aborted operations.
+ */
+public final class CancellationToken {
+
+    /**
+     * A token that is never cancelled, for work not tied to a request.
+     */
+    public static final CancellationToken NONE = new CancellationToken(null, false, null);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CancellationToken.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean child;
+    // System.nanoTime() of the deadline, or null for none:
+    private final Long deadlineNanos;
+    private final List<Registration> registrations = new ArrayList<>();
+    private final List<CancellationToken> children = new ArrayList<>();
+    private CancellationReason reason;
+    private boolean completed;
+
+    CancellationToken(MeterRegistry meterRegistry, boolean child, Long deadlineNanos) {
+        this.meterRegistry = meterRegistry;
+        this.child = child;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return how long until the token's deadline passes (zero if it already has), or null if it has no deadline
+     */
+    public Duration timeRemaining() {
+        return deadlineNanos == null ? null
+                : Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    Long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Registers how to abort an operation that's about to start; close the registration once it has finished.
+     *
+     * @throws QueryCancelledException if the token is already cancelled, so the operation shouldn't start
+     */
+    public Registration onCancel(String operation, Runnable abort) {
+        Registration registration = new Registration(operation, abort);
+        if (this == NONE) {
+            return registration;
+        }
+        synchronized (this) {
+            if (reason != null) {
+                throw new QueryCancelledException(reason);
+            }
+            registrations.add(registration);
+        }
+        return registration;
+    }
+
+    /**
+     * Aborts all operations in flight. Only the first reason counts; cancelling a completed token does nothing.
+     */
+    public void cancel(CancellationReason cancellationReason) {
+        List<Registration> inFlight;
+        List<CancellationToken> childTokens;
+        synchronized (this) {
+            if (this == NONE || reason != null || completed) {
+                return;
+            }
+            reason = cancellationReason;
+            inFlight = new ArrayList<>(registrations);
+            registrations.clear();
+            childTokens = new ArrayList<>(children);
+            children.clear();
+        }
+        if (!child) {
+            meterRegistry.counter("dataexploration.requests.cancelled", "reason", cancellationReason.tagValue())
+                    .increment();
+        }
+        for (Registration registration : inFlight) {
+            registration.abort(cancellationReason);
+        }
+        for (CancellationToken childToken : childTokens) {
+            childToken.cancel(cancellationReason);
+        }
+    }
+
+    void addChild(CancellationToken childToken) {
+        if (this == NONE) {
+            return;
+        }
+        CancellationReason cancelledFor;
+        synchronized (this) {
+            cancelledFor = reason;
+            if (cancelledFor == null) {
+                children.add(childToken);
+                return;
+            }
+        }
+        childToken.cancel(cancelledFor);
+    }
+
+    /**
+     * Marks the work as done, so a client that disconnects after getting its answer doesn't count as a
+     * cancellation.
+     */
+    public synchronized void complete() {
+        completed = true;
+    }
+
+    public synchronized boolean isCancelled() {
+        return reason != null;
+    }
+
+    public void throwIfCancelled() {
+        CancellationReason cancellationReason;
+        synchronized (this) {
+            cancellationReason = reason;
+        }
+        if (cancellationReason != null) {
+            throw new QueryCancelledException(cancellationReason);
+        }
+    }
+
+    public final class Registration implements AutoCloseable {
+
+        private final String operation;
+        private final Runnable abort;
+
+        private Registration(String operation, Runnable abort) {
+            this.operation = operation;
+            this.abort = abort;
+        }
+
+        private void abort(CancellationReason cancellationReason) {
+            LOGGER.info("Cancelling {} because {}", operation, cancellationReason.getDescription());
+            try {
+                abort.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not cancel " + operation, e);
+            }
+            meterRegistry.counter("dataexploration.operations.cancelled", "reason", cancellationReason.tagValue(),
+                    "operation", operation).increment();
+        }
+
+        @Override
+        public void close() {
+            synchronized (CancellationToken.this) {
+                registrations.remove(this);
+            }
+        }
+    }
+}
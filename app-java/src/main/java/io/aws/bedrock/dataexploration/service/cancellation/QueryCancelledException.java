@@ -0,0 +1,21 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.cancellation;
+
+/**
+ * Thrown in place of whatever error the aborted model call or query ended with, once its question has been
+ * cancelled.
+ */
+public class QueryCancelledException extends RuntimeException {
+
+    private final CancellationReason reason;
+
+    public QueryCancelledException(CancellationReason reason) {
+        super("Question cancelled because " + reason.getDescription());
+        this.reason = reason;
+    }
+
+    public CancellationReason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Keeps job results as files in a directory, which must be on a volume that all instances mount and that
+ * survives restarts (for a single instance, a persistent volume is enough).
+ */
+final class DirectoryJobResultLocation implements JobResultLocation {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryJobResultLocation.class);
+
+    private final Path directory;
+
+    DirectoryJobResultLocation(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void save(String jobId, Path resultFile) throws IOException {
+        // Copy next to the final name first, so readers never see a partly written result:
+        Path tempFile = Files.createTempFile(directory, jobId, ".tmp");
+        try {
+            Files.copy(resultFile, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, resultFile(jobId), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public InputStream open(String jobId) throws IOException {
+        try {
+            return Files.newInputStream(resultFile(jobId));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void deleteOlderThan(Instant cutoff) {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> isOlderThan(file, cutoff)).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                    LOGGER.info("Deleted expired job result {}", file);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete expired job result " + file, e);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.error("Error listing job results", e);
+        }
+    }
+
+    private boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path resultFile(String jobId) {
+        return directory.resolve(jobId + ".jsonl");
+    }
+}
@@ -0,0 +1,24 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.job;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Where the {@link JobResultStore} keeps finished results. Any instance must be able to read a result that
+ * another one stored, and results must outlive the instance that stored them.
+ */
+interface JobResultLocation {
+
+    void save(String jobId, Path resultFile) throws IOException;
+
+    /**
+     * @return the stored result, or null if there is none (or it has expired)
+     */
+    InputStream open(String jobId) throws IOException;
+
+    void deleteOlderThan(Instant cutoff);
+}
@@ -0,0 +1,107 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.job;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.QueryResultPage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps finished job results as JSON lines: the column names first, then one line per row. That lets a page be
+ * read by skipping lines rather than loading the whole result. Results go to the S3 bucket
+ * {@code jobResultBucket}, or else to {@code jobResultDirectory} - which has to be a durable directory shared by
+ * all instances - so that any instance can return them, also after a restart.
+ */
+@Service
+public class JobResultStore {
+
+    private static final TypeReference<List<String>> ROW_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JobResultLocation location;
+    private final Duration retention;
+
+    public JobResultStore(DataExplorationProperties dataExplorationProperties) throws IOException {
+        this.retention = Duration.ofHours(dataExplorationProperties.getJobRetentionHours());
+        if (isSet(dataExplorationProperties.getJobResultBucket())) {
+            this.location = new S3JobResultLocation(dataExplorationProperties.getJobResultBucket());
+        } else if (isSet(dataExplorationProperties.getJobResultDirectory())) {
+            this.location = new DirectoryJobResultLocation(
+                    Paths.get(dataExplorationProperties.getJobResultDirectory()));
+        } else {
+            throw new IllegalStateException("Set bedrock.data.exploration.jobResultBucket, or jobResultDirectory "
+                    + "to a durable directory shared by all instances, to keep job results");
+        }
+    }
+
+    public void storeResult(String jobId, QueryResult queryResult) throws IOException {
+        Path resultFile = Files.createTempFile(jobId, ".jsonl");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+                writer.write(objectMapper.writeValueAsString(queryResult.getColumns()));
+                writer.newLine();
+                for (List<String> row : queryResult.getValues()) {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.newLine();
+                }
+            }
+            location.save(jobId, resultFile);
+        } finally {
+            Files.deleteIfExists(resultFile);
+        }
+    }
+
+    /**
+     * @return the requested page, or null if the job has no (unexpired) result
+     */
+    public QueryResultPage readPage(String jobId, int page, int pageSize, long totalRows) throws IOException {
+        InputStream inputStream = location.open(jobId);
+        if (inputStream == null) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            List<String> columns = objectMapper.readValue(reader.readLine(), ROW_TYPE);
+            List<List<String>> values = new ArrayList<>(pageSize);
+            try (Stream<String> lines = reader.lines()) {
+                lines.skip((long) page * pageSize).limit(pageSize).forEach(line -> {
+                    try {
+                        values.add(objectMapper.readValue(line, ROW_TYPE));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return new QueryResultPage(columns, values, page, pageSize, totalRows);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "PT1H")
+    public void deleteExpiredResults() {
+        location.deleteOlderThan(Instant.now().minus(retention));
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+}
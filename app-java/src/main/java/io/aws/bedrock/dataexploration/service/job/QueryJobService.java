@@ -0,0 +1,272 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.job;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.JobStatus;
+import io.aws.bedrock.dataexploration.entity.QueryJob;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.QueryResultPage;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+import io.aws.bedrock.dataexploration.service.DynamoDbService;
+import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationReason;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs questions in the background on a bounded worker pool. Job metadata is kept in DynamoDB and finished results
+ * in the {@link JobResultStore}, so any instance can report on a job and return its results.
+ * <p>
+ * While this instance has a job queued or running, it renews the job's lease. A job whose lease has run out
+ * belongs to an instance that stopped without cleaning up (e.g. it crashed), and is marked as failed when read.
+ */
+@Service
+public class QueryJobService implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryJobService.class);
+    private static final long EVENT_TIMEOUT_MILLIS = Duration.ofMinutes(30).toMillis();
+    // Renewed every 30 seconds (see renewLeases), so a few missed renewals don't fail a job:
+    private static final long LEASE_MILLIS = Duration.ofMinutes(2).toMillis();
+
+    private final DynamoDbService dynamoDbService;
+    private final UserQueryExecutionService userQueryExecutionService;
+    private final JobResultStore jobResultStore;
+    private final CancellationService cancellationService;
+    private final Duration retention;
+    private final String instanceId;
+    private final ThreadPoolExecutor workerPool;
+    private final Map<String, QueryJob> activeJobs = new ConcurrentHashMap<>();
+    private final Map<String, CancellationToken> runningJobs = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    public QueryJobService(DynamoDbService dynamoDbService, UserQueryExecutionService userQueryExecutionService,
+            JobResultStore jobResultStore, CancellationService cancellationService,
+            DataExplorationProperties dataExplorationProperties) {
+        this.dynamoDbService = dynamoDbService;
+        this.userQueryExecutionService = userQueryExecutionService;
+        this.jobResultStore = jobResultStore;
+        this.cancellationService = cancellationService;
+        this.retention = Duration.ofHours(dataExplorationProperties.getJobRetentionHours());
+        this.instanceId = dataExplorationProperties.getInstanceId() != null
+                ? dataExplorationProperties.getInstanceId() : localHostName();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workerPool = new ThreadPoolExecutor(dataExplorationProperties.getJobWorkerThreads(),
+                dataExplorationProperties.getJobWorkerThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(dataExplorationProperties.getJobQueueCapacity()),
+                runnable -> new Thread(runnable, "query-job-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public QueryJob submitJob(String databaseName, String question) {
+        QueryJob queryJob = new QueryJob();
+        queryJob.setJobId(UUID.randomUUID().toString());
+        queryJob.setDatabaseName(databaseName);
+        queryJob.setQuestion(question);
+        queryJob.setStatus(JobStatus.QUEUED);
+        queryJob.setSubmittedAt(System.currentTimeMillis());
+        queryJob.setExpiresAt(Instant.now().plus(retention).getEpochSecond());
+        queryJob.setInstanceId(instanceId);
+        queryJob.setLeaseExpiresAt(System.currentTimeMillis() + LEASE_MILLIS);
+        dynamoDbService.storeJob(queryJob);
+        activeJobs.put(queryJob.getJobId(), queryJob);
+        try {
+            workerPool.execute(() -> runJob(queryJob));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(queryJob.getJobId());
+            fail(queryJob, "Job queue is full");
+            throw e;
+        }
+        return queryJob;
+    }
+
+    public QueryJob getJob(String jobId) {
+        if (!isValidJobId(jobId)) {
+            return null;
+        }
+        QueryJob activeJob = activeJobs.get(jobId);
+        if (activeJob != null) {
+            return activeJob;
+        }
+        QueryJob queryJob = dynamoDbService.getJob(jobId);
+        if (queryJob != null && !queryJob.getStatus().isTerminal() && queryJob.getLeaseExpiresAt() != null
+                && queryJob.getLeaseExpiresAt() < System.currentTimeMillis()) {
+            fail(queryJob, "Instance " + queryJob.getInstanceId() + " stopped before the job completed");
+        }
+        return queryJob;
+    }
+
+    /**
+     * @return the requested page, or null if the job has no (unexpired) result
+     */
+    public QueryResultPage getResultPage(QueryJob queryJob, int page, int pageSize) throws IOException {
+        if (queryJob.getStatus() != JobStatus.SUCCEEDED) {
+            return null;
+        }
+        return jobResultStore.readPage(queryJob.getJobId(), page, pageSize, queryJob.getRowCount());
+    }
+
+    @Scheduled(fixedDelayString = "PT30S")
+    public void renewLeases() {
+        for (QueryJob queryJob : activeJobs.values()) {
+            // Writes of a job are serialized, so a renewal can't overwrite the job's final status:
+            synchronized (queryJob) {
+                if (queryJob.getStatus().isTerminal()) {
+                    continue;
+                }
+                queryJob.setLeaseExpiresAt(System.currentTimeMillis() + LEASE_MILLIS);
+                try {
+                    dynamoDbService.storeJob(queryJob);
+                } catch (Exception e) {
+                    LOGGER.warn("Could not renew the lease of job " + queryJob, e);
+                }
+            }
+        }
+    }
+
+    public SseEmitter subscribe(QueryJob queryJob) {
+        SseEmitter emitter = new SseEmitter(EVENT_TIMEOUT_MILLIS);
+        if (!queryJob.getStatus().isTerminal()) {
+            List<SseEmitter> jobEmitters = emitters.computeIfAbsent(queryJob.getJobId(),
+                    id -> new CopyOnWriteArrayList<>());
+            jobEmitters.add(emitter);
+            emitter.onCompletion(() -> jobEmitters.remove(emitter));
+            emitter.onTimeout(() -> jobEmitters.remove(emitter));
+        }
+        // Send the current state straight away, in case the job finished while subscribing:
+        QueryJob latest = getJob(queryJob.getJobId());
+        QueryJob current = latest != null ? latest : queryJob;
+        send(emitter, current);
+        if (current.getStatus().isTerminal()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // Interrupting the workers doesn't stop queries already running on the data sources:
+        runningJobs.values().forEach(cancellationToken -> cancellationToken.cancel(CancellationReason.SHUTDOWN));
+        workerPool.shutdownNow();
+        workerPool.awaitTermination(10, TimeUnit.SECONDS);
+        // Don't leave jobs looking like they're still running after this instance goes away:
+        activeJobs.values().forEach(queryJob -> fail(queryJob, "Service stopped before the job completed"));
+    }
+
+    private void runJob(QueryJob queryJob) {
+        CancellationToken cancellationToken = cancellationService.newToken();
+        runningJobs.put(queryJob.getJobId(), cancellationToken);
+        try {
+            queryJob.setStartedAt(System.currentTimeMillis());
+            update(queryJob, JobStatus.GENERATING_QUERY);
+            DatabaseInformation databaseItem = dynamoDbService.getDatabaseItem(queryJob.getDatabaseName());
+            if (databaseItem == null) {
+                fail(queryJob, "Unknown database: " + queryJob.getDatabaseName());
+                return;
+            }
+            BedrockResult bedrockResult = userQueryExecutionService.generateQuery(databaseItem,
+                    queryJob.getQuestion(), cancellationToken);
+            queryJob.setQuery(bedrockResult.getQuery());
+            queryJob.setExplanation(bedrockResult.getExplanation());
+            queryJob.setQueryGeneratedAt(System.currentTimeMillis());
+            update(queryJob, JobStatus.EXECUTING_QUERY);
+            QueryResult queryResult = userQueryExecutionService.executeGeneratedQuery(databaseItem,
+                    queryJob.getQuestion(), bedrockResult, cancellationToken);
+            try (ResultBuffer values = queryResult.getValues()) {
+                jobResultStore.storeResult(queryJob.getJobId(), queryResult);
+                queryJob.setRowCount((long) values.size());
+            }
+            queryJob.setFinishedAt(System.currentTimeMillis());
+            update(queryJob, JobStatus.SUCCEEDED);
+        } catch (Exception e) {
+            LOGGER.error("Job failed: " + queryJob, e);
+            fail(queryJob, e.getMessage());
+        } finally {
+            cancellationToken.complete();
+            runningJobs.remove(queryJob.getJobId());
+            activeJobs.remove(queryJob.getJobId());
+        }
+    }
+
+    private void fail(QueryJob queryJob, String errorMessage) {
+        queryJob.setErrorMessage(errorMessage);
+        queryJob.setFinishedAt(System.currentTimeMillis());
+        try {
+            update(queryJob, JobStatus.FAILED);
+        } catch (Exception e) {
+            LOGGER.error("Could not store failed job: " + queryJob, e);
+        }
+    }
+
+    private void update(QueryJob queryJob, JobStatus status) {
+        synchronized (queryJob) {
+            queryJob.setStatus(status);
+            dynamoDbService.storeJob(queryJob);
+        }
+        List<SseEmitter> jobEmitters = status.isTerminal()
+                ? emitters.remove(queryJob.getJobId())
+                : emitters.get(queryJob.getJobId());
+        if (jobEmitters != null) {
+            for (SseEmitter emitter : jobEmitters) {
+                send(emitter, queryJob);
+                if (status.isTerminal()) {
+                    emitter.complete();
+                }
+            }
+        }
+    }
+
+    private void send(SseEmitter emitter, QueryJob queryJob) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(queryJob));
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone away; the emitter's own callbacks clean up after it.
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            String hostName = System.getenv("HOSTNAME");
+            return hostName != null ? hostName : "unknown";
+        }
+    }
+
+    private boolean isValidJobId(String jobId) {
+        try {
+            UUID.fromString(jobId);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.job;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Keeps job results as objects in an S3 bucket, which every instance can read. Expiry is left to the bucket's
+ * lifecycle rule.
+ */
+final class S3JobResultLocation implements JobResultLocation {
+
+    private static final String KEY_PREFIX = "job-results/";
+
+    private final S3Client s3Client;
+    private final String bucket;
+
+    S3JobResultLocation(String bucket) {
+        this.s3Client = S3Client.create();
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void save(String jobId, Path resultFile) {
+        s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(key(jobId)).build(),
+                RequestBody.fromFile(resultFile));
+    }
+
+    @Override
+    public InputStream open(String jobId) {
+        try {
+            return s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(key(jobId)).build());
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void deleteOlderThan(Instant cutoff) {
+        // Done by the bucket's lifecycle rule.
+    }
+
+    private static String key(String jobId) {
+        return KEY_PREFIX + jobId + ".jsonl";
+    }
+}
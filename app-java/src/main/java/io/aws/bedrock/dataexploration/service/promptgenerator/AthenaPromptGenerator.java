@@ -9,20 +9,15 @@ import org.springframework.stereotype.Service;
 public class AthenaPromptGenerator implements PromptGenerator {
 
     @Override
-    public String generatePrompt(DatabaseInformation databaseItem, String userQuestion) {
+    public String generateSystemPrompt(DatabaseInformation databaseItem) {
         return """
-                Human:
                 You are connected to a Amazon Athena database with the following schema:
 
                 <schema>
                 %s
                 </schema>
 
-                The database is implemented in AnsiSQL. Write a query to retrieve the data needed to answer the following question - or respond with "unknown" if the given schema does not contain relevant information. Output the query inside <query></query> tags and and explanation of what the query does inside <explanation></explanation> tags.
-
-                Question: %s
-
-                Assistant:"""
-                .formatted(databaseItem.getSchema(), userQuestion);
+                The database is implemented in AnsiSQL. Write a query to retrieve the data needed to answer the user's question - or respond with "unknown" if the given schema does not contain relevant information. Output the query inside <query></query> tags and and explanation of what the query does inside <explanation></explanation> tags."""
+                .formatted(databaseItem.getSchema());
     }
 }
@@ -9,21 +9,16 @@ import org.springframework.stereotype.Service;
 public class PostgreSqlPromptGenerator implements PromptGenerator {
 
     @Override
-    public String generatePrompt(DatabaseInformation databaseItem, String userQuestion) {
+    public String generateSystemPrompt(DatabaseInformation databaseItem) {
         return """
-                Human:
                 You are connected to a relational database with the following schema:
 
                 <schema>
                 %s
                 </schema>
 
-                The database is implemented in PostgreSQL. Write a query to retrieve the data needed to answer the following question - or respond with "unknown" if the given schema does not contain relevant information. Output the query inside <query></query> tags and and explanation of what the query does inside <explanation></explanation> tags. Do not use any linebreak inside the <query></query> and <explanation></explanation> tags!
-
-                Question: %s
-
-                Assistant:"""
-                .formatted(databaseItem.getSchema(), userQuestion);
+                The database is implemented in PostgreSQL. Write a query to retrieve the data needed to answer the user's question - or respond with "unknown" if the given schema does not contain relevant information. Output the query inside <query></query> tags and and explanation of what the query does inside <explanation></explanation> tags. Do not use any linebreak inside the <query></query> and <explanation></explanation> tags!"""
+                .formatted(databaseItem.getSchema());
     }
 
 }
@@ -2,10 +2,19 @@
 // SPDX-License-Identifier: MIT-0
 package io.aws.bedrock.dataexploration.service.promptgenerator;
 
+import io.aws.bedrock.dataexploration.entity.BedrockPrompt;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 
 public interface PromptGenerator {
 
-    public String generatePrompt(DatabaseInformation databaseItem, String userQuestion);
+    /**
+     * @return the instructions and schema of the database; must not depend on the question, so that the
+     *         model can reuse its processing of this prefix across questions
+     */
+    public String generateSystemPrompt(DatabaseInformation databaseItem);
+
+    public default BedrockPrompt generatePrompt(DatabaseInformation databaseItem, String userQuestion) {
+        return new BedrockPrompt(generateSystemPrompt(databaseItem), userQuestion);
+    }
 
 }
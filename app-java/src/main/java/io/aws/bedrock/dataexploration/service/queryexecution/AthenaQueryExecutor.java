@@ -4,19 +4,31 @@ package io.aws.bedrock.dataexploration.service.queryexecution;
 
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.service.arrow.ArrowStreamExporter;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
 import org.springframework.stereotype.Service;
 import com.simba.athena.jdbc.Driver;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
-import java.util.LinkedList;
+import java.util.Map;
 import java.util.Properties;
 
 @Service
 public class AthenaQueryExecutor implements QueryExecutor {
 
+    private final ArrowStreamExporter arrowStreamExporter;
+    private final ResultBufferFactory resultBufferFactory;
+
+    public AthenaQueryExecutor(ArrowStreamExporter arrowStreamExporter, ResultBufferFactory resultBufferFactory) {
+        this.arrowStreamExporter = arrowStreamExporter;
+        this.resultBufferFactory = resultBufferFactory;
+    }
+
     @Override
-    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString)
-            throws ClassNotFoundException {
+    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString,
+            CancellationToken cancellationToken) throws ClassNotFoundException {
         // Load the driver so it'll be found by JDBC:
         Class.forName("com.simba.athena.jdbc.Driver");
         Connection connection = null;
@@ -26,21 +38,10 @@ public class AthenaQueryExecutor implements QueryExecutor {
             String url = databaseInformation.getConnectionUrl();
             connection = DriverManager.getConnection(url);
             statement = connection.createStatement();
-            try (ResultSet rs = statement.executeQuery(queryString)) {
-                LinkedList<String> columnNames = new LinkedList<>();
-                int columnCount = rs.getMetaData().getColumnCount();
-                for (int i = 1; i <= columnCount; i++) {
-                    columnNames.add(rs.getMetaData().getColumnLabel(i));
-                }
-                LinkedList<LinkedList<String>> values = new LinkedList<>();
-                while (rs.next()) {
-                    LinkedList<String> rowValues = new LinkedList<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        rowValues.add(rs.getString(i));
-                    }
-                    values.add(rowValues);
-                }
-                return new QueryResult(values, columnNames);
+            try (CancellationToken.Registration registration = JdbcCancellation.cancelOnRequest(cancellationToken,
+                         "athena", statement);
+                 ResultSet rs = statement.executeQuery(queryString)) {
+                return JdbcResultReader.readQueryResult(rs, resultBufferFactory.newResultBuffer());
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -59,4 +60,26 @@ public class AthenaQueryExecutor implements QueryExecutor {
             }
         }
     }
+
+    @Override
+    public void exportArrowStream(DatabaseInformation databaseInformation, String queryString,
+            Map<String, String> metadata, OutputStream outputStream, CancellationToken cancellationToken)
+            throws ClassNotFoundException, IOException {
+        Class.forName("com.simba.athena.jdbc.Driver");
+        try (Connection connection = DriverManager.getConnection(databaseInformation.getConnectionUrl());
+             Statement statement = connection.createStatement();
+             CancellationToken.Registration registration = JdbcCancellation.cancelOnRequest(cancellationToken,
+                     "athena", statement);
+             ResultSet rs = statement.executeQuery(queryString)) {
+            arrowStreamExporter.writeResultSet(rs, metadata, outputStream);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void warmUp(DatabaseInformation databaseInformation) throws ClassNotFoundException {
+        // Class-loading and initializing the (large) Simba driver is most of the cost of a first Athena query:
+        Class.forName("com.simba.athena.jdbc.Driver");
+    }
 }
@@ -0,0 +1,29 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.queryexecution;
+
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+final class JdbcCancellation {
+
+    private JdbcCancellation() {
+    }
+
+    /**
+     * Cancels the statement if the question is cancelled while it runs; for PostgreSQL this makes the server
+     * abort the query, and for Athena the driver stops the query execution.
+     */
+    static CancellationToken.Registration cancelOnRequest(CancellationToken cancellationToken, String operation,
+            Statement statement) {
+        return cancellationToken.onCancel(operation, () -> {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.queryexecution;
+
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Reads a JDBC {@link ResultSet} into the string-valued {@link QueryResult} used by the HTML and JSON views.
+ */
+public final class JdbcResultReader {
+
+    private JdbcResultReader() {
+    }
+
+    public static QueryResult readQueryResult(ResultSet rs, ResultBuffer values) throws SQLException {
+        LinkedList<String> columnNames = new LinkedList<>();
+        int columnCount = rs.getMetaData().getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            columnNames.add(rs.getMetaData().getColumnLabel(i));
+        }
+        try {
+            while (rs.next()) {
+                List<String> rowValues = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; i++) {
+                    rowValues.add(rs.getString(i));
+                }
+                values.addRow(rowValues);
+            }
+            values.finish();
+        } catch (SQLException | RuntimeException e) {
+            values.close();
+            throw e;
+        }
+        return new QueryResult(values, columnNames);
+    }
+}
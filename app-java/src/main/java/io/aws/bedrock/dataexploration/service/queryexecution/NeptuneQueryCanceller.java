@@ -0,0 +1,95 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.queryexecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cancels openCypher queries on the Neptune server through its query status API, since the Bolt driver can't
+ * interrupt a running query from another thread. Each query is sent with a unique comment, by which its Neptune
+ * query ID is then found among the running queries.
+ */
+final class NeptuneQueryCanceller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NeptuneQueryCanceller.class);
+    private static final String MARKER_PREFIX = "dataexploration-query:";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * @return a marker to send along with one query
+     */
+    String newMarker() {
+        return MARKER_PREFIX + UUID.randomUUID();
+    }
+
+    static String markQuery(String query, String marker) {
+        return "/* " + marker + " */ " + query;
+    }
+
+    /**
+     * Looks up the marked query among the queries running on the endpoint of the Bolt URL, and cancels it. Runs
+     * asynchronously, so the cancelling thread isn't held up by the HTTP calls.
+     */
+    CompletableFuture<Void> cancel(String boltUrl, String marker) {
+        URI statusUri = statusUri(boltUrl);
+        return httpClient.sendAsync(HttpRequest.newBuilder(statusUri).GET().build(),
+                        HttpResponse.BodyHandlers.ofString())
+                .thenCompose(response -> {
+                    String queryId = findQueryId(response.body(), marker);
+                    if (queryId == null) {
+                        // Finished (or not started) in the meantime:
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    String form = "cancelQuery&queryId=" + URLEncoder.encode(queryId, StandardCharsets.UTF_8);
+                    return httpClient.sendAsync(HttpRequest.newBuilder(statusUri)
+                                    .header("Content-Type", "application/x-www-form-urlencoded")
+                                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                                    .build(), HttpResponse.BodyHandlers.discarding())
+                            .thenAccept(cancelResponse -> LOGGER.info("Cancelled Neptune query {} (HTTP {})",
+                                    queryId, cancelResponse.statusCode()));
+                })
+                .exceptionally(e -> {
+                    LOGGER.warn("Could not cancel Neptune query " + marker, e);
+                    return null;
+                });
+    }
+
+    private String findQueryId(String statusBody, String marker) {
+        try {
+            for (JsonNode query : objectMapper.readTree(statusBody).path("queries")) {
+                if (query.path("queryString").asText().contains(marker)) {
+                    return query.path("queryId").asText();
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // bolt://host:8182 -> https://host:8182/openCypher/status, which Neptune serves on the same port:
+    private static URI statusUri(String boltUrl) {
+        URI bolt = URI.create(boltUrl);
+        return URI.create("https://" + bolt.getHost() + (bolt.getPort() < 0 ? "" : ":" + bolt.getPort())
+                + "/openCypher/status");
+    }
+}
@@ -4,10 +4,19 @@ package io.aws.bedrock.dataexploration.service.queryexecution;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+import io.aws.bedrock.dataexploration.service.arrow.ArrowStreamExporter;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.neo4j.driver.*;
@@ -20,13 +29,26 @@ import org.neo4j.driver.types.Type;
 import org.neo4j.driver.types.TypeSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 
 @Service
-public class NeptuneQueryExecutor implements QueryExecutor {
+public class NeptuneQueryExecutor implements QueryExecutor, DisposableBean {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
     private static final Logger LOGGER = LoggerFactory.getLogger(NeptuneQueryExecutor.class);
+    private final Map<String, Driver> drivers = new ConcurrentHashMap<>();
+    private final ArrowStreamExporter arrowStreamExporter;
+    private final ResultBufferFactory resultBufferFactory;
+    private final boolean encryption;
+    private final NeptuneQueryCanceller queryCanceller = new NeptuneQueryCanceller();
+
+    public NeptuneQueryExecutor(ArrowStreamExporter arrowStreamExporter, ResultBufferFactory resultBufferFactory,
+            DataExplorationProperties dataExplorationProperties) {
+        this.arrowStreamExporter = arrowStreamExporter;
+        this.resultBufferFactory = resultBufferFactory;
+        this.encryption = dataExplorationProperties.isNeptuneEncryption();
+    }
 
     private LinkedList<String> recordToValues(org.neo4j.driver.Record record) {
         final LinkedList<String> fieldList = new LinkedList<String>();
@@ -50,26 +72,89 @@ public class NeptuneQueryExecutor implements QueryExecutor {
     }
 
     @Override
-    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString) {
+    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString,
+            CancellationToken cancellationToken) {
 
         // TODO: Check databaseInformation.connectionUrl matches 'bolt://{url}:{port}'
-        final Driver driver =
-                GraphDatabase.driver(databaseInformation.getConnectionUrl(),
-                        AuthTokens.none(),
-                        Config.builder().withEncryption().withTrustStrategy(TrustStrategy.trustSystemCertificates()).build());
-        final Result rawResult = driver.session().run(queryString);
+        String marker = queryCanceller.newMarker();
+        try (Session session = getDriver(databaseInformation).session();
+             Transaction transaction = session.beginTransaction(transactionConfig(cancellationToken));
+             CancellationToken.Registration registration = cancelOnRequest(cancellationToken, databaseInformation,
+                     marker)) {
+            final Result rawResult = transaction.run(NeptuneQueryCanceller.markQuery(queryString, marker));
+
+//            LOGGER.info(rawResult.keys().stream().collect(Collectors.joining(",")));
+
+            // TODO: Check result is finite stream?
+            // TODO: Nicer multi-column printing?
+            final LinkedList<String> cols = new LinkedList<String>();
+            cols.add("Records");
+
+
+            ResultBuffer vals = resultBufferFactory.newResultBuffer();
+            try {
+                rawResult.stream().map(this::recordToValues).forEach(vals::addRow);
+                vals.finish();
+            } catch (RuntimeException e) {
+                vals.close();
+                throw e;
+            }
+
+            return new QueryResult(vals, cols);
+        }
+    }
+
+    @Override
+    public void exportArrowStream(DatabaseInformation databaseInformation, String queryString,
+            Map<String, String> metadata, OutputStream outputStream, CancellationToken cancellationToken)
+            throws IOException {
+        String marker = queryCanceller.newMarker();
+        try (Session session = getDriver(databaseInformation).session();
+             Transaction transaction = session.beginTransaction(transactionConfig(cancellationToken));
+             CancellationToken.Registration registration = cancelOnRequest(cancellationToken, databaseInformation,
+                     marker)) {
+            arrowStreamExporter.writeRecords(transaction.run(NeptuneQueryCanceller.markQuery(queryString, marker)),
+                    metadata, outputStream);
+        }
+    }
 
-//        LOGGER.info(rawResult.keys().stream().collect(Collectors.joining(",")));
+    @Override
+    public void warmUp(DatabaseInformation databaseInformation) {
+        getDriver(databaseInformation).verifyConnectivity();
+    }
 
-        // TODO: Check result is finite stream?
-        // TODO: Nicer multi-column printing?
-        final LinkedList<String> cols = new LinkedList<String>();
-        cols.add("Records");
+    @Override
+    public void destroy() {
+        drivers.values().forEach(Driver::close);
+    }
 
+    // Driver transactions aren't thread-safe, and closing one only discards the rest of its results, so a query
+    // is cancelled on the server instead; it then fails on the thread running it. Local Bolt servers (without
+    // encryption) don't have Neptune's status API, and only get the transaction timeout:
+    private CancellationToken.Registration cancelOnRequest(CancellationToken cancellationToken,
+            DatabaseInformation databaseInformation, String marker) {
+        return cancellationToken.onCancel("neptune", () -> {
+            if (encryption) {
+                queryCanceller.cancel(databaseInformation.getConnectionUrl(), marker);
+            }
+        });
+    }
 
-        LinkedList<LinkedList<String>> vals = new LinkedList<>();
-        vals.addAll(rawResult.stream().map(this::recordToValues).collect(Collectors.toList()));
+    // Lets the server give up on its own once nobody waits for the answer any more:
+    private static TransactionConfig transactionConfig(CancellationToken cancellationToken) {
+        Duration timeRemaining = cancellationToken.timeRemaining();
+        return timeRemaining == null ? TransactionConfig.empty()
+                : TransactionConfig.builder().withTimeout(timeRemaining.isZero() ? Duration.ofMillis(1)
+                        : timeRemaining).build();
+    }
 
-        return new QueryResult(vals, cols);
+    // Drivers hold their own connection pools, so keep one per endpoint for the life of the app:
+    private Driver getDriver(DatabaseInformation databaseInformation) {
+        return drivers.computeIfAbsent(databaseInformation.getConnectionUrl(),
+                url -> GraphDatabase.driver(url, AuthTokens.none(), encryption
+                        ? Config.builder().withEncryption()
+                                .withTrustStrategy(TrustStrategy.trustSystemCertificates()).build()
+                        // Only for local Bolt servers (e.g. in load tests), which don't have a trusted certificate:
+                        : Config.builder().withoutEncryption().build()));
     }
 }
@@ -0,0 +1,311 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.queryexecution;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The connection pools of one PostgreSQL data source: its primary, plus the read replicas listed in its
+ * {@code readerConnectionUrls}. Queries go to the replica with the fewest queries in flight (least outstanding
+ * requests) among those that passed their last health check with a replication lag within {@code maxLagMillis}.
+ * Only when no replica qualifies do they fall back to the primary, if that's allowed. A replica whose pool is
+ * merely exhausted is skipped for that query only; if every usable replica is, the query fails instead of
+ * moving exploratory load onto the primary.
+ * <p>
+ * Replica health and lag are refreshed by {@link #checkReplicas()}. A replica that fails to connect (as opposed
+ * to having no free connection) is also taken out of rotation straight away, until its next successful check.
+ */
+final class PostgreSqlEndpointGroup implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgreSqlEndpointGroup.class);
+    // A replica that is streaming from the primary and has replayed all WAL it received is as current as it can
+    // be, however long ago the primary last committed. Otherwise - including when it has lost its connection to
+    // the primary - the lag is the age of the last replayed transaction, or unknown (null) if there is none.
+    // The receiver's status is only visible with pg_read_all_stats; without it, a running receiver counts as
+    // streaming:
+    private static final String REPLICA_LAG_QUERY = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()
+                    AND EXISTS (SELECT 1 FROM pg_stat_wal_receiver
+                        WHERE COALESCE(status, 'streaming') = 'streaming') THEN 0
+                ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END""";
+    // Fail over to the next endpoint quickly instead of waiting on an unreachable replica:
+    private static final long REPLICA_CONNECTION_TIMEOUT_MILLIS = 5000;
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 5;
+
+    private final String databaseName;
+    private final Endpoint primary;
+    private final List<Endpoint> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final boolean primaryFallback;
+    private final Counter replicaQueries;
+    private final Counter primaryQueries;
+    private final Counter fallbackQueries;
+
+    PostgreSqlEndpointGroup(DatabaseInformation databaseInformation, String username, String password, int poolSize,
+            long maxLagMillis, boolean primaryFallback, MeterRegistry meterRegistry) {
+        this(databaseInformation.getDatabaseName(), primaryPool(databaseInformation, username, password, poolSize),
+                replicaPools(databaseInformation, username, password, poolSize), maxLagMillis, primaryFallback,
+                meterRegistry);
+    }
+
+    /**
+     * Takes the endpoints' pools ready-made; each endpoint is named after its pool's JDBC URL.
+     */
+    PostgreSqlEndpointGroup(String databaseName, HikariDataSource primaryDataSource,
+            List<HikariDataSource> replicaDataSources, long maxLagMillis, boolean primaryFallback,
+            MeterRegistry meterRegistry) {
+        this.databaseName = databaseName;
+        this.maxLagMillis = maxLagMillis;
+        this.primaryFallback = primaryFallback;
+        this.primary = new Endpoint(endpointName(primaryDataSource.getJdbcUrl()), primaryDataSource);
+        for (HikariDataSource replicaDataSource : replicaDataSources) {
+            replicas.add(new Endpoint(endpointName(replicaDataSource.getJdbcUrl()), replicaDataSource));
+        }
+
+        for (Endpoint endpoint : allEndpoints()) {
+            Gauge.builder("dataexploration.postgres.outstanding", endpoint.outstanding, AtomicInteger::get)
+                    .description("Queries in flight per PostgreSQL endpoint")
+                    .tag("database", databaseName).tag("endpoint", endpoint.name)
+                    .register(meterRegistry);
+        }
+        for (Endpoint replica : replicas) {
+            Gauge.builder("dataexploration.postgres.replica.lag", replica,
+                            r -> r.healthy && r.lagMillis != Long.MAX_VALUE ? r.lagMillis : Double.NaN)
+                    .description("Replication lag of a PostgreSQL read replica in ms, as of its last health check")
+                    .tag("database", databaseName).tag("endpoint", replica.name)
+                    .register(meterRegistry);
+        }
+        this.replicaQueries = queryCounter(meterRegistry, "replica");
+        this.primaryQueries = queryCounter(meterRegistry, "primary");
+        this.fallbackQueries = queryCounter(meterRegistry, "primary_fallback");
+    }
+
+    /**
+     * @return a connection to the best endpoint for a read-only query, counted as in flight until closed
+     */
+    Lease lease() throws SQLException {
+        Set<Endpoint> tried = new HashSet<>();
+        SQLException exhausted = null;
+        for (Endpoint replica = pickReplica(tried); replica != null; replica = pickReplica(tried)) {
+            tried.add(replica);
+            try {
+                Lease lease = open(replica);
+                replicaQueries.increment();
+                return lease;
+            } catch (SQLException e) {
+                if (isPoolExhausted(e)) {
+                    // Busy, not broken: try a less busy replica, but don't take this one out of rotation.
+                    exhausted = e;
+                    continue;
+                }
+                LOGGER.warn("Taking PostgreSQL replica {} of {} out of rotation: {}", replica.name, databaseName,
+                        e.getMessage());
+                replica.healthy = false;
+            }
+        }
+        if (exhausted != null) {
+            // Busy replicas are no reason to load the primary with exploratory queries:
+            throw exhausted;
+        }
+        if (replicas.isEmpty()) {
+            primaryQueries.increment();
+        } else if (primaryFallback) {
+            fallbackQueries.increment();
+        } else {
+            throw new SQLException("No read replica of " + databaseName + " is healthy and within "
+                    + maxLagMillis + " ms of the primary");
+        }
+        return open(primary);
+    }
+
+    /**
+     * Refreshes each replica's health and replication lag.
+     */
+    void checkReplicas() {
+        for (Endpoint replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+                try (ResultSet resultSet = statement.executeQuery(REPLICA_LAG_QUERY)) {
+                    resultSet.next();
+                    long lagMillis = resultSet.getLong(1);
+                    replica.lagMillis = resultSet.wasNull() ? Long.MAX_VALUE : lagMillis;
+                }
+                if (!replica.healthy) {
+                    LOGGER.info("PostgreSQL replica {} of {} is back in rotation", replica.name, databaseName);
+                }
+                replica.healthy = true;
+            } catch (SQLException e) {
+                if (isPoolExhausted(e)) {
+                    // Too busy to check, which says nothing about its health: keep its last health and lag.
+                    continue;
+                }
+                if (replica.healthy) {
+                    LOGGER.warn("PostgreSQL replica {} of {} failed its health check: {}", replica.name,
+                            databaseName, e.getMessage());
+                }
+                replica.healthy = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        allEndpoints().forEach(endpoint -> endpoint.dataSource.close());
+    }
+
+    // Hikari reports a pool that stayed exhausted for its whole connection timeout without a cause; when it
+    // couldn't connect, the cause is the connection (or authentication) failure:
+    private static boolean isPoolExhausted(SQLException e) {
+        return e instanceof SQLTransientConnectionException && e.getCause() == null;
+    }
+
+    private Endpoint pickReplica(Set<Endpoint> tried) {
+        Endpoint best = null;
+        // Start at a random replica, so ties don't always go to the first one:
+        int offset = replicas.isEmpty() ? 0 : ThreadLocalRandom.current().nextInt(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Endpoint replica = replicas.get((offset + i) % replicas.size());
+            if (replica.healthy && replica.lagMillis <= maxLagMillis && !tried.contains(replica)
+                    && (best == null || replica.outstanding.get() < best.outstanding.get())) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    private Lease open(Endpoint endpoint) throws SQLException {
+        endpoint.outstanding.incrementAndGet();
+        try {
+            return new Lease(endpoint, endpoint.dataSource.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            endpoint.outstanding.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private List<Endpoint> allEndpoints() {
+        List<Endpoint> endpoints = new ArrayList<>(replicas);
+        endpoints.add(0, primary);
+        return endpoints;
+    }
+
+    private Counter queryCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("dataexploration.postgres.queries")
+                .description("PostgreSQL queries by the kind of endpoint they ran on")
+                .tag("database", databaseName).tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static HikariDataSource primaryPool(DatabaseInformation databaseInformation, String username,
+            String password, int poolSize) {
+        HikariConfig primaryConfig = poolConfig("postgresql-" + databaseInformation.getDatabaseName(),
+                databaseInformation.getConnectionUrl(), username, password, poolSize);
+        if (!readerUrls(databaseInformation).isEmpty()) {
+            // With replicas to serve queries, only open primary connections when falling back to it, and don't
+            // let an unreachable primary keep the replicas from answering:
+            primaryConfig.setMinimumIdle(0);
+            primaryConfig.setInitializationFailTimeout(-1);
+        }
+        return new HikariDataSource(primaryConfig);
+    }
+
+    private static List<HikariDataSource> replicaPools(DatabaseInformation databaseInformation, String username,
+            String password, int poolSize) {
+        List<String> readerUrls = readerUrls(databaseInformation);
+        List<HikariDataSource> replicaPools = new ArrayList<>();
+        for (int i = 0; i < readerUrls.size(); i++) {
+            HikariConfig replicaConfig = poolConfig("postgresql-" + databaseInformation.getDatabaseName()
+                    + "-replica-" + (i + 1), readerUrls.get(i), username, password, poolSize);
+            replicaConfig.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MILLIS);
+            // An unreachable replica shouldn't stop queries from reaching the others (or the primary):
+            replicaConfig.setInitializationFailTimeout(-1);
+            replicaPools.add(new HikariDataSource(replicaConfig));
+        }
+        return replicaPools;
+    }
+
+    private static List<String> readerUrls(DatabaseInformation databaseInformation) {
+        return databaseInformation.getReaderConnectionUrls() == null ? List.of()
+                : databaseInformation.getReaderConnectionUrls();
+    }
+
+    private static HikariConfig poolConfig(String poolName, String jdbcUrl, String username, String password,
+            int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(1);
+        // Generated queries only ever need to read:
+        config.setReadOnly(true);
+        return config;
+    }
+
+    // host:port/database, without the driver prefix or any parameters (which might include credentials):
+    private static String endpointName(String jdbcUrl) {
+        String name = jdbcUrl.replaceFirst("^jdbc:postgresql://", "");
+        int parameters = name.indexOf('?');
+        return parameters < 0 ? name : name.substring(0, parameters);
+    }
+
+    private static final class Endpoint {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private volatile long lagMillis;
+
+        private Endpoint(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    static final class Lease implements AutoCloseable {
+
+        private final Endpoint endpoint;
+        private final Connection connection;
+
+        private Lease(Endpoint endpoint, Connection connection) {
+            this.endpoint = endpoint;
+            this.connection = connection;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                connection.close();
+            } finally {
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+    }
+}
@@ -4,57 +4,135 @@ package io.aws.bedrock.dataexploration.service.queryexecution;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.aws.bedrock.dataexploration.config.AwsClients;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.service.arrow.ArrowStreamExporter;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
 import software.amazon.awssdk.services.secretsmanager.model.SecretsManagerException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
-import java.util.LinkedList;
-import java.util.Properties;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Runs generated queries on PostgreSQL. Data sources with {@code readerConnectionUrls} have their queries
+ * spread across those read replicas, falling back to the primary only when none is usable (see
+ * {@link PostgreSqlEndpointGroup}).
+ */
 @Service
-public class PostgreSqlQueryExecutor implements QueryExecutor {
+public class PostgreSqlQueryExecutor implements QueryExecutor, DisposableBean {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecretsManagerClient secretsClient;
+    // One set of connection pools per data source, created on first use (or at warm-up):
+    private final Map<String, PostgreSqlEndpointGroup> endpointGroups = new ConcurrentHashMap<>();
+    private final ArrowStreamExporter arrowStreamExporter;
+    private final ResultBufferFactory resultBufferFactory;
+    private final MeterRegistry meterRegistry;
+    private final int poolSize;
+    private final long replicaMaxLagMillis;
+    private final boolean primaryFallback;
+
+    public PostgreSqlQueryExecutor(ArrowStreamExporter arrowStreamExporter, ResultBufferFactory resultBufferFactory,
+            DataExplorationProperties dataExplorationProperties, MeterRegistry meterRegistry) {
+        this.arrowStreamExporter = arrowStreamExporter;
+        this.resultBufferFactory = resultBufferFactory;
+        this.meterRegistry = meterRegistry;
+        this.poolSize = dataExplorationProperties.getPostgresPoolSize();
+        this.replicaMaxLagMillis = dataExplorationProperties.getPostgresReplicaMaxLag().toMillis();
+        this.primaryFallback = dataExplorationProperties.isPostgresPrimaryFallback();
+        this.secretsClient = AwsClients.withEndpoint(SecretsManagerClient.builder(),
+                dataExplorationProperties.getSecretsManagerEndpoint()).build();
+    }
 
     @Override
-    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString) {
-        JsonNode secretValue = getSecretValue(databaseInformation);
-        String url = databaseInformation.getConnectionUrl();
-        Properties props = new Properties();
-        props.setProperty("user", secretValue.get("username").textValue());
-        props.setProperty("password", secretValue.get("password").textValue());
-        Statement st;
-        try (Connection conn = DriverManager.getConnection(url, props)) {
-            st = conn.createStatement();
-            try (ResultSet rs = st.executeQuery(queryString)) {
-                LinkedList<String> columnNames = new LinkedList<>();
-                int columnCount = rs.getMetaData().getColumnCount();
-                for (int i = 1; i <= columnCount; i++) {
-                    columnNames.add(rs.getMetaData().getColumnLabel(i));
-                }
-                LinkedList<LinkedList<String>> values = new LinkedList<>();
-                while (rs.next()) {
-                    LinkedList<String> rowValues = new LinkedList<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        rowValues.add(rs.getString(i));
-                    }
-                    values.add(rowValues);
-                }
-                return new QueryResult(values, columnNames);
+    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString,
+            CancellationToken cancellationToken) {
+        try (PostgreSqlEndpointGroup.Lease lease = lease(databaseInformation);
+             Statement st = lease.connection().createStatement();
+             CancellationToken.Registration registration = JdbcCancellation.cancelOnRequest(cancellationToken,
+                     "postgresql", st);
+             ResultSet rs = st.executeQuery(queryString)) {
+            return JdbcResultReader.readQueryResult(rs, resultBufferFactory.newResultBuffer());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void exportArrowStream(DatabaseInformation databaseInformation, String queryString,
+            Map<String, String> metadata, OutputStream outputStream, CancellationToken cancellationToken)
+            throws IOException {
+        try (PostgreSqlEndpointGroup.Lease lease = lease(databaseInformation);
+             Statement st = lease.connection().createStatement()) {
+            // Stream rows from the server instead of buffering the whole result in the driver:
+            lease.connection().setAutoCommit(false);
+            st.setFetchSize(1000);
+            try (CancellationToken.Registration registration = JdbcCancellation.cancelOnRequest(cancellationToken,
+                         "postgresql", st);
+                 ResultSet rs = st.executeQuery(queryString)) {
+                arrowStreamExporter.writeResultSet(rs, metadata, outputStream);
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public void warmUp(DatabaseInformation databaseInformation) {
+        PostgreSqlEndpointGroup endpointGroup = getEndpointGroup(databaseInformation);
+        // Learn which replicas are usable before the first question, instead of on a failed query:
+        endpointGroup.checkReplicas();
+        try (PostgreSqlEndpointGroup.Lease lease = endpointGroup.lease()) {
+            lease.connection().isValid(5);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bedrock.data.exploration.postgresReplicaHealthCheckInterval:PT10S}")
+    public void checkReplicas() {
+        endpointGroups.values().forEach(PostgreSqlEndpointGroup::checkReplicas);
+    }
+
+    @Override
+    public void destroy() {
+        endpointGroups.values().forEach(PostgreSqlEndpointGroup::close);
+        secretsClient.close();
+    }
+
+    private PostgreSqlEndpointGroup.Lease lease(DatabaseInformation databaseInformation) throws SQLException {
+        return getEndpointGroup(databaseInformation).lease();
+    }
+
+    private PostgreSqlEndpointGroup getEndpointGroup(DatabaseInformation databaseInformation) {
+        String key = databaseInformation.getConnectionUrl() + "#" + databaseInformation.getDatabaseCredentialsSsm()
+                + "#" + Objects.requireNonNullElse(databaseInformation.getReaderConnectionUrls(), "");
+        return endpointGroups.computeIfAbsent(key, k -> createEndpointGroup(databaseInformation));
+    }
+
+    private PostgreSqlEndpointGroup createEndpointGroup(DatabaseInformation databaseInformation) {
+        JsonNode secretValue = getSecretValue(databaseInformation);
+        // Read replicas are reached with the primary's credentials, as with RDS and Aurora replicas:
+        return new PostgreSqlEndpointGroup(databaseInformation, secretValue.get("username").textValue(),
+                secretValue.get("password").textValue(), poolSize, replicaMaxLagMillis, primaryFallback,
+                meterRegistry);
+    }
+
     private JsonNode getSecretValue(DatabaseInformation databaseInformation) {
-        try (SecretsManagerClient secretsClient = SecretsManagerClient.builder().build()) {
+        try {
             GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
                     .secretId(databaseInformation.getDatabaseCredentialsSsm())
                     .build();
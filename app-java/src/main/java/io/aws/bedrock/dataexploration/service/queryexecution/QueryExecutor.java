@@ -5,9 +5,28 @@ package io.aws.bedrock.dataexploration.service.queryexecution;
 import io.aws.bedrock.dataexploration.entity.BedrockResult;
 import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
 import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
 
 public interface QueryExecutor {
 
-    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString) throws ClassNotFoundException;
+    /**
+     * Runs the query, aborting it on the data source if the cancellation token is cancelled in the meantime.
+     */
+    public QueryResult executeQuery(DatabaseInformation databaseInformation, String queryString,
+            CancellationToken cancellationToken) throws ClassNotFoundException;
+
+    public void exportArrowStream(DatabaseInformation databaseInformation, String queryString,
+            Map<String, String> metadata, OutputStream outputStream, CancellationToken cancellationToken)
+            throws ClassNotFoundException, IOException;
+
+    /**
+     * Prepares the drivers, clients and connection pools needed to query this data source, ahead of the
+     * first user question.
+     */
+    public void warmUp(DatabaseInformation databaseInformation) throws ClassNotFoundException;
 
 }
@@ -0,0 +1,26 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.queryexecution;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Service
+public class ResultBufferFactory {
+
+    private final long heapThresholdBytes;
+    private final Path spillDirectory;
+
+    public ResultBufferFactory(DataExplorationProperties dataExplorationProperties) {
+        this.heapThresholdBytes = dataExplorationProperties.getResultBufferHeapBytes();
+        this.spillDirectory = Paths.get(dataExplorationProperties.getResultBufferDirectory());
+    }
+
+    public ResultBuffer newResultBuffer() {
+        return new ResultBuffer(heapThresholdBytes, spillDirectory);
+    }
+}
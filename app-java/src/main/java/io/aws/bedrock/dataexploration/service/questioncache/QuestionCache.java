@@ -0,0 +1,199 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.questioncache;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.QuestionCacheReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reuses the generated query of an earlier, successfully executed question when a new question to the same
+ * database is worded similarly enough, skipping the model call. Questions are matched per database with
+ * MinHash locality-sensitive hashing over normalized tokens (see {@link QuestionSignature}), then confirmed by
+ * exact token similarity against {@code questionCacheSimilarityThreshold}. Entries are bound to the database
+ * schema they were generated for.
+ * <p>
+ * To measure how often reuse is wrong, a {@code questionCacheVerificationRate} sample of hits is regenerated
+ * in the background and compared with the reused query. A query mismatch drops the entry; it isn't necessarily
+ * a wrong reuse, as the two queries may be equivalent. Hit and query mismatch rates are reported by
+ * {@link #report()} and as
+ * {@code dataexploration.question.cache.*} metrics.
+ */
+@Service
+public class QuestionCache implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionCache.class);
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntriesPerDatabase;
+    private final double verificationRate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DatabaseCache> databaseCaches = new ConcurrentHashMap<>();
+    // A single background thread with a short queue: verification is a sample, so it's fine to skip some.
+    private final ThreadPoolExecutor verifier = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> new Thread(runnable, "question-cache-verifier"),
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    public QuestionCache(DataExplorationProperties dataExplorationProperties, MeterRegistry meterRegistry) {
+        this.enabled = dataExplorationProperties.isQuestionCacheEnabled();
+        this.similarityThreshold = dataExplorationProperties.getQuestionCacheSimilarityThreshold();
+        this.maxEntriesPerDatabase = dataExplorationProperties.getQuestionCacheMaxEntriesPerDatabase();
+        this.verificationRate = dataExplorationProperties.getQuestionCacheVerificationRate();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return the answer to an earlier question similar enough to this one, or null
+     */
+    public CachedAnswer lookup(DatabaseInformation databaseInformation, String question) {
+        if (!enabled) {
+            return null;
+        }
+        QuestionSignature signature = QuestionSignature.of(question);
+        if (signature.isEmpty()) {
+            return null;
+        }
+        DatabaseCache databaseCache = getDatabaseCache(databaseInformation.getDatabaseName());
+        QuestionIndex.Match match = databaseCache.index.find(signature, schemaHash(databaseInformation),
+                similarityThreshold);
+        if (match == null) {
+            databaseCache.misses.increment();
+            return null;
+        }
+        databaseCache.hits.increment();
+        LOGGER.info("Reusing the query for \"{}\" (similarity {}) for \"{}\"", match.entry().question(),
+                match.similarity(), question);
+        BedrockResult cached = match.entry().bedrockResult();
+        return new CachedAnswer(match.entry().id(), match.entry().question(), match.similarity(),
+                new BedrockResult(cached.getExplanation(), cached.getQuery(), true));
+    }
+
+    /**
+     * Remembers the generated query of a question once it has executed successfully. A reused query isn't
+     * recorded again, so an entry keeps the question its query was actually generated for.
+     */
+    public void recordSuccess(DatabaseInformation databaseInformation, String question, BedrockResult bedrockResult) {
+        if (!enabled || bedrockResult.isReused()) {
+            return;
+        }
+        QuestionSignature signature = QuestionSignature.of(question);
+        if (!signature.isEmpty()) {
+            getDatabaseCache(databaseInformation.getDatabaseName()).index.put(question, signature,
+                    schemaHash(databaseInformation), bedrockResult, similarityThreshold);
+        }
+    }
+
+    /**
+     * For a sample of cache hits, generates the query afresh in the background and records whether reusing
+     * the cached one was right.
+     */
+    public void verifyInBackground(DatabaseInformation databaseInformation, String question,
+            CachedAnswer cachedAnswer, Supplier<BedrockResult> freshResult) {
+        if (ThreadLocalRandom.current().nextDouble() >= verificationRate) {
+            return;
+        }
+        DatabaseCache databaseCache = getDatabaseCache(databaseInformation.getDatabaseName());
+        verifier.execute(() -> {
+            try {
+                BedrockResult fresh = freshResult.get();
+                if (normalizeQuery(fresh.getQuery()).equals(normalizeQuery(cachedAnswer.bedrockResult().getQuery()))) {
+                    databaseCache.verifiedMatches.increment();
+                } else {
+                    databaseCache.queryMismatches.increment();
+                    databaseCache.index.remove(cachedAnswer.entryId());
+                    LOGGER.warn("Query mismatch for \"{}\" reusing the query for \"{}\": {} instead of {}", question,
+                            cachedAnswer.matchedQuestion(), cachedAnswer.bedrockResult().getQuery(),
+                            fresh.getQuery());
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Could not verify cached answer for \"" + question + "\"", e);
+            }
+        });
+    }
+
+    public List<QuestionCacheReport> report() {
+        List<QuestionCacheReport> reports = new ArrayList<>();
+        databaseCaches.forEach((databaseName, databaseCache) -> {
+            long hits = (long) databaseCache.hits.count();
+            long lookups = hits + (long) databaseCache.misses.count();
+            long queryMismatches = (long) databaseCache.queryMismatches.count();
+            long verifiedHits = queryMismatches + (long) databaseCache.verifiedMatches.count();
+            reports.add(new QuestionCacheReport(databaseName, databaseCache.index.size(),
+                    databaseCache.index.evictions(), lookups, hits, lookups == 0 ? 0 : (double) hits / lookups,
+                    verifiedHits, queryMismatches, verifiedHits == 0 ? 0 : (double) queryMismatches / verifiedHits));
+        });
+        return reports;
+    }
+
+    @Override
+    public void destroy() {
+        verifier.shutdownNow();
+    }
+
+    private DatabaseCache getDatabaseCache(String databaseName) {
+        return databaseCaches.computeIfAbsent(databaseName, this::createDatabaseCache);
+    }
+
+    private DatabaseCache createDatabaseCache(String databaseName) {
+        QuestionIndex index = new QuestionIndex(maxEntriesPerDatabase);
+        Gauge.builder("dataexploration.question.cache.entries", index, QuestionIndex::size)
+                .description("Questions held in the question cache")
+                .tag("database", databaseName)
+                .register(meterRegistry);
+        return new DatabaseCache(index,
+                lookupCounter(databaseName, "hit"),
+                lookupCounter(databaseName, "miss"),
+                verificationCounter(databaseName, "match"),
+                verificationCounter(databaseName, "mismatch"));
+    }
+
+    private Counter lookupCounter(String databaseName, String result) {
+        return Counter.builder("dataexploration.question.cache.lookups")
+                .description("Question cache lookups")
+                .tag("database", databaseName).tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter verificationCounter(String databaseName, String result) {
+        return Counter.builder("dataexploration.question.cache.verifications")
+                .description("Sampled cache hits compared against a freshly generated query")
+                .tag("database", databaseName).tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String schemaHash(DatabaseInformation databaseInformation) {
+        return Integer.toHexString(Objects.hashCode(databaseInformation.getSchema()));
+    }
+
+    // Differences in case, whitespace or a trailing semicolon don't change what a query does:
+    private static String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll(";+$", "").replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    public record CachedAnswer(long entryId, String matchedQuestion, double similarity, BedrockResult bedrockResult) {
+    }
+
+    private record DatabaseCache(QuestionIndex index, Counter hits, Counter misses, Counter verifiedMatches,
+            Counter queryMismatches) {
+    }
+}
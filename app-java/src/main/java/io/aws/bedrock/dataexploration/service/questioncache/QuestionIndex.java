@@ -0,0 +1,122 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.questioncache;
+
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Past questions of one database, indexed by the LSH band keys of their {@link QuestionSignature}. Holds at
+ * most {@code maxEntries} questions and evicts the least recently used one beyond that.
+ */
+final class QuestionIndex {
+
+    private final int maxEntries;
+    // In access order, so iteration starts at the least recently used entry:
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, List<Long>> buckets = new HashMap<>();
+    private long nextId;
+    private long evictions;
+
+    QuestionIndex(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the most similar entry at or above {@code threshold} for the same schema, or null
+     */
+    synchronized Match find(QuestionSignature signature, String schemaHash, double threshold) {
+        Set<Long> candidates = new HashSet<>();
+        for (int band = 0; band < QuestionSignature.BANDS; band++) {
+            List<Long> bucket = buckets.get(signature.bandKey(band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        Entry best = null;
+        double bestSimilarity = 0;
+        for (Long id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                continue;
+            }
+            if (!entry.schemaHash().equals(schemaHash)) {
+                // Generated for an older schema, so it may no longer be valid:
+                remove(id);
+                continue;
+            }
+            double similarity = entry.signature().similarity(signature);
+            if (similarity >= threshold && similarity > bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        return best == null ? null : new Match(best, bestSimilarity);
+    }
+
+    /**
+     * Adds a question, replacing an existing entry that's already similar enough to be answered the same way.
+     */
+    synchronized void put(String question, QuestionSignature signature, String schemaHash, BedrockResult bedrockResult,
+            double threshold) {
+        Match existing = find(signature, schemaHash, threshold);
+        if (existing != null) {
+            remove(existing.entry().id());
+        }
+        long id = nextId++;
+        entries.put(id, new Entry(id, question, signature, schemaHash, bedrockResult));
+        for (int band = 0; band < QuestionSignature.BANDS; band++) {
+            buckets.computeIfAbsent(signature.bandKey(band), key -> new ArrayList<>(1)).add(id);
+        }
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            Entry evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            removeFromBuckets(evicted);
+            evictions++;
+        }
+    }
+
+    synchronized void remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            removeFromBuckets(entry);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    private void removeFromBuckets(Entry entry) {
+        for (int band = 0; band < QuestionSignature.BANDS; band++) {
+            long bandKey = entry.signature().bandKey(band);
+            List<Long> bucket = buckets.get(bandKey);
+            if (bucket != null) {
+                bucket.remove(Long.valueOf(entry.id()));
+                if (bucket.isEmpty()) {
+                    buckets.remove(bandKey);
+                }
+            }
+        }
+    }
+
+    record Entry(long id, String question, QuestionSignature signature, String schemaHash,
+            BedrockResult bedrockResult) {
+    }
+
+    record Match(Entry entry, double similarity) {
+    }
+}
@@ -0,0 +1,117 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.questioncache;
+
+import io.aws.bedrock.dataexploration.service.text.TextNormalizer;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A question reduced to a set of normalized tokens (see {@link TextNormalizer}), plus its MinHash signature for
+ * locality-sensitive lookup. Numbers and negations are guard tokens, since questions differing only in those
+ * need different queries.
+ */
+final class QuestionSignature {
+
+    private static final int HASHES = 64;
+    static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = HASHES / BANDS;
+
+    private static final long[] SEEDS = seeds();
+
+    private final Set<String> tokens;
+    // Tokens that must match exactly for two questions to be similar at all:
+    private final Set<String> guardTokens;
+    private final long[] bandKeys;
+
+    private QuestionSignature(Set<String> tokens, Set<String> guardTokens, long[] bandKeys) {
+        this.tokens = tokens;
+        this.guardTokens = guardTokens;
+        this.bandKeys = bandKeys;
+    }
+
+    static QuestionSignature of(String question) {
+        Set<String> tokens = new TreeSet<>();
+        Set<String> guardTokens = new TreeSet<>();
+        for (String token : TextNormalizer.tokens(question)) {
+            if (token.equals("not") || token.chars().allMatch(Character::isDigit)) {
+                guardTokens.add(token);
+            }
+            tokens.add(token);
+        }
+        long[] minHashes = new long[HASHES];
+        Arrays.fill(minHashes, Long.MAX_VALUE);
+        for (String token : tokens) {
+            long tokenHash = hash(token);
+            for (int i = 0; i < HASHES; i++) {
+                minHashes[i] = Math.min(minHashes[i], mix(tokenHash ^ SEEDS[i]));
+            }
+        }
+        long[] bandKeys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int i = band * ROWS_PER_BAND; i < (band + 1) * ROWS_PER_BAND; i++) {
+                key = mix(key * 31 + minHashes[i]);
+            }
+            bandKeys[band] = key;
+        }
+        return new QuestionSignature(tokens, guardTokens, bandKeys);
+    }
+
+    boolean isEmpty() {
+        return tokens.isEmpty();
+    }
+
+    /**
+     * @return a key identifying this signature's rows in the given LSH band; similar questions share at least
+     *         one band key with high probability
+     */
+    long bandKey(int band) {
+        return bandKeys[band];
+    }
+
+    /**
+     * @return the exact Jaccard similarity of the two token sets, or 0 if they differ in numbers or negation
+     */
+    double similarity(QuestionSignature other) {
+        if (!guardTokens.equals(other.guardTokens)) {
+            return 0;
+        }
+        int intersection = 0;
+        for (String token : tokens) {
+            if (other.tokens.contains(token)) {
+                intersection++;
+            }
+        }
+        int union = tokens.size() + other.tokens.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private static long hash(String token) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer, to turn one token hash into independent-looking hashes per seed:
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static long[] seeds() {
+        long[] seeds = new long[HASHES];
+        long seed = 0x9e3779b97f4a7c15L;
+        for (int i = 0; i < HASHES; i++) {
+            seed += 0x9e3779b97f4a7c15L;
+            seeds[i] = mix(seed);
+        }
+        return seeds;
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.routing;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.RankedDatabase;
+import io.aws.bedrock.dataexploration.service.DynamoDbService;
+import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationReason;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.startup.StartupTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers questions that don't name a database. The catalog's databases are ranked by how well their schema
+ * matches the question (see {@link SchemaIndex}, no model call involved), and the question is then asked of the
+ * best {@code routingCandidates} databases in parallel - only those scoring at least
+ * {@code routingMinScoreRatio} of the best score. The first candidate to return rows wins and the others are
+ * cancelled; if none does, the best-ranked empty answer is returned. A question whose best match scores below
+ * {@code routingMinScore} isn't asked at all, so one that matches nothing doesn't fan out to arbitrary databases.
+ * <p>
+ * Which rank answered is counted as {@code dataexploration.routing.answers}, tagged {@code rank}.
+ */
+@Service
+public class DatabaseRouter implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseRouter.class);
+    // The catalog is re-read (and the index rebuilt) at most this often:
+    private static final long CATALOG_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_CANDIDATE_THREADS = 64;
+
+    private final DynamoDbService dynamoDbService;
+    private final UserQueryExecutionService userQueryExecutionService;
+    private final CancellationService cancellationService;
+    private final MeterRegistry meterRegistry;
+    private final StartupTimer startupTimer;
+    private final int maxCandidates;
+    private final double minScore;
+    private final double minScoreRatio;
+    // Beyond its limit, candidates run on the asking thread instead, one after another:
+    private final ThreadPoolExecutor candidatePool;
+    private volatile IndexedCatalog indexedCatalog;
+
+    public DatabaseRouter(DynamoDbService dynamoDbService, UserQueryExecutionService userQueryExecutionService,
+            CancellationService cancellationService, MeterRegistry meterRegistry, StartupTimer startupTimer,
+            DataExplorationProperties dataExplorationProperties) {
+        this.dynamoDbService = dynamoDbService;
+        this.userQueryExecutionService = userQueryExecutionService;
+        this.cancellationService = cancellationService;
+        this.meterRegistry = meterRegistry;
+        this.startupTimer = startupTimer;
+        this.maxCandidates = Math.max(1, dataExplorationProperties.getRoutingCandidates());
+        this.minScore = dataExplorationProperties.getRoutingMinScore();
+        this.minScoreRatio = dataExplorationProperties.getRoutingMinScoreRatio();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.candidatePool = new ThreadPoolExecutor(0, MAX_CANDIDATE_THREADS, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> new Thread(runnable, "database-router-"
+                        + threadCount.incrementAndGet()), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public List<RankedDatabase> rank(String question) {
+        List<RankedDatabase> ranking = new ArrayList<>();
+        for (SchemaIndex.Match match : getSchemaIndex().rank(question)) {
+            ranking.add(new RankedDatabase(match.database().getDatabaseName(), match.database().getDbType(),
+                    match.score()));
+        }
+        return ranking;
+    }
+
+    /**
+     * @return the databases worth asking, best match first
+     * @throws NoMatchingDatabaseException if no database is registered or none matches the question well enough
+     */
+    public List<DatabaseInformation> selectCandidates(String question) {
+        SchemaIndex schemaIndex = getSchemaIndex();
+        if (schemaIndex.isEmpty()) {
+            throw new NoMatchingDatabaseException("No databases are registered");
+        }
+        List<SchemaIndex.Match> matches = schemaIndex.rank(question);
+        double bestScore = matches.get(0).score();
+        if (bestScore < minScore) {
+            throw new NoMatchingDatabaseException("No database schema matches the question, name a database");
+        }
+        List<DatabaseInformation> candidates = new ArrayList<>();
+        for (SchemaIndex.Match match : matches) {
+            if (candidates.size() == maxCandidates || match.score() < bestScore * minScoreRatio) {
+                break;
+            }
+            candidates.add(match.database());
+        }
+        return candidates;
+    }
+
+    public QueryResult answer(String question, CancellationToken cancellationToken) {
+        List<DatabaseInformation> candidates = selectCandidates(question);
+        List<CancellationToken> attemptTokens = new ArrayList<>();
+        List<CompletableFuture<QueryResult>> attempts = new ArrayList<>();
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        for (int rank = 0; rank < candidates.size(); rank++) {
+            DatabaseInformation databaseItem = candidates.get(rank);
+            CancellationToken attemptToken = cancellationService.newChildToken(cancellationToken);
+            int attemptRank = rank;
+            CompletableFuture<QueryResult> attempt = CompletableFuture.supplyAsync(
+                    () -> answerFrom(databaseItem, question, attemptToken), candidatePool);
+            attempt.whenComplete((result, error) -> outcomes.add(new Outcome(attemptRank, result, error)));
+            attemptTokens.add(attemptToken);
+            attempts.add(attempt);
+        }
+
+        int chosen = -1;
+        Throwable[] errors = new Throwable[candidates.size()];
+        try {
+            int winner = -1;
+            int emptyAnswer = -1;
+            for (int finished = 0; finished < candidates.size() && winner < 0; finished++) {
+                Outcome outcome = outcomes.take();
+                if (outcome.error() != null) {
+                    errors[outcome.rank()] = outcome.error() instanceof CompletionException
+                            && outcome.error().getCause() != null ? outcome.error().getCause() : outcome.error();
+                } else if (outcome.result().getValues().size() > 0) {
+                    winner = outcome.rank();
+                } else if (emptyAnswer < 0 || outcome.rank() < emptyAnswer) {
+                    emptyAnswer = outcome.rank();
+                }
+            }
+            chosen = cancellationToken.isCancelled() ? -1 : winner >= 0 ? winner : emptyAnswer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an answer", e);
+        } finally {
+            for (int rank = 0; rank < candidates.size(); rank++) {
+                if (rank != chosen) {
+                    attemptTokens.get(rank).cancel(CancellationReason.SUPERSEDED);
+                    // Answers that still arrive are of no use, so release their result buffers straight away:
+                    attempts.get(rank).thenAccept(result -> result.getValues().close());
+                }
+            }
+        }
+        cancellationToken.throwIfCancelled();
+        if (chosen < 0) {
+            meterRegistry.counter("dataexploration.routing.answers", "rank", "none").increment();
+            RuntimeException failure = new RuntimeException("None of the candidate databases "
+                    + candidates.stream().map(DatabaseInformation::getDatabaseName).toList()
+                    + " could answer the question");
+            for (Throwable error : errors) {
+                if (error != null) {
+                    failure.addSuppressed(error);
+                }
+            }
+            throw failure;
+        }
+        meterRegistry.counter("dataexploration.routing.answers", "rank", String.valueOf(chosen + 1)).increment();
+        startupTimer.recordAnswer();
+        LOGGER.info("Answered \"{}\" from {} (candidate {} of {})", question,
+                candidates.get(chosen).getDatabaseName(), chosen + 1, candidates.size());
+        return attempts.get(chosen).join();
+    }
+
+    @Override
+    public void destroy() {
+        candidatePool.shutdownNow();
+    }
+
+    private QueryResult answerFrom(DatabaseInformation databaseItem, String question,
+            CancellationToken attemptToken) {
+        try {
+            BedrockResult bedrockResult = userQueryExecutionService.generateQuery(databaseItem, question,
+                    attemptToken);
+            return userQueryExecutionService.executeGeneratedQuery(databaseItem, question, bedrockResult,
+                    attemptToken);
+        } finally {
+            attemptToken.complete();
+        }
+    }
+
+    private SchemaIndex getSchemaIndex() {
+        IndexedCatalog current = indexedCatalog;
+        if (current == null || System.nanoTime() - current.builtAt() > CATALOG_REFRESH_NANOS) {
+            current = new IndexedCatalog(new SchemaIndex(dynamoDbService.getDatabaseItems()), System.nanoTime());
+            indexedCatalog = current;
+        }
+        return current.schemaIndex();
+    }
+
+    private record IndexedCatalog(SchemaIndex schemaIndex, long builtAt) {
+    }
+
+    private record Outcome(int rank, QueryResult result, Throwable error) {
+    }
+}
@@ -0,0 +1,14 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.routing;
+
+/**
+ * Thrown when a question without a database name can't be routed: no database is registered, or no schema
+ * matches the question well enough to be worth asking.
+ */
+public class NoMatchingDatabaseException extends RuntimeException {
+
+    public NoMatchingDatabaseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.routing;
+
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.service.text.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ranks databases by how well their name and schema match a question, with BM25 over the normalized words of
+ * both. Schema identifiers are split at underscores and camel case, so {@code customer_id} and
+ * {@code orderedAt} match questions about customers and orders. Immutable once built.
+ */
+final class SchemaIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Words of the schema notation itself (normalized like question words), which say nothing about the data:
+    private static final Set<String> SCHEMA_WORDS = Set.of("create", "table", "primary", "key", "foreign",
+            "reference", "not", "null", "unique", "default", "constraint", "index", "integer", "int", "bigint",
+            "smallint", "serial", "bigserial", "numeric", "decimal", "double", "precision", "real", "float",
+            "boolean", "bool", "text", "varchar", "char", "character", "varying", "string", "date", "timestamp",
+            "time", "zone", "json", "jsonb", "uuid", "array", "map", "struct", "id", "node", "label", "property",
+            "relationship", "external", "location", "row", "format", "stored", "partitioned");
+
+    private final List<DatabaseInformation> databases = new ArrayList<>();
+    private final List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+    private final List<Integer> lengths = new ArrayList<>();
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+    private final double averageLength;
+
+    SchemaIndex(Iterable<DatabaseInformation> databaseItems) {
+        long totalLength = 0;
+        for (DatabaseInformation databaseItem : databaseItems) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = 0;
+            for (String token : schemaTokens(databaseItem)) {
+                frequencies.merge(token, 1, Integer::sum);
+                length++;
+            }
+            frequencies.keySet().forEach(token -> documentFrequencies.merge(token, 1, Integer::sum));
+            databases.add(databaseItem);
+            termFrequencies.add(frequencies);
+            lengths.add(length);
+            totalLength += length;
+        }
+        this.averageLength = databases.isEmpty() ? 0 : (double) totalLength / databases.size();
+    }
+
+    boolean isEmpty() {
+        return databases.isEmpty();
+    }
+
+    /**
+     * @return all databases, best match first; ties (e.g. when no database matches at all) keep catalog order
+     */
+    List<Match> rank(String question) {
+        Set<String> questionTokens = new LinkedHashSet<>(TextNormalizer.tokens(question));
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < databases.size(); i++) {
+            Map<String, Integer> frequencies = termFrequencies.get(i);
+            double lengthNorm = K1 * (1 - B + B * lengths.get(i) / Math.max(averageLength, 1));
+            double score = 0;
+            for (String token : questionTokens) {
+                Integer frequency = frequencies.get(token);
+                if (frequency != null) {
+                    score += idf(token) * frequency * (K1 + 1) / (frequency + lengthNorm);
+                }
+            }
+            matches.add(new Match(databases.get(i), score));
+        }
+        matches.sort(Comparator.comparingDouble(Match::score).reversed());
+        return matches;
+    }
+
+    private double idf(String token) {
+        int documentFrequency = documentFrequencies.getOrDefault(token, 0);
+        return Math.log(1 + (databases.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static List<String> schemaTokens(DatabaseInformation databaseItem) {
+        String text = databaseItem.getDatabaseName() + " " + (databaseItem.getSchema() == null ? ""
+                : databaseItem.getSchema());
+        List<String> tokens = new ArrayList<>();
+        for (String token : TextNormalizer.tokens(text.replaceAll("(\\p{Ll}|\\p{N})(\\p{Lu})", "$1 $2"))) {
+            // Numbers in a schema are type sizes and the like, not values a question could refer to:
+            if (!SCHEMA_WORDS.contains(token) && !token.chars().allMatch(Character::isDigit)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    record Match(DatabaseInformation database, double score) {
+    }
+}
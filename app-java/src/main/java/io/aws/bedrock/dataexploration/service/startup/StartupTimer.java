@@ -0,0 +1,56 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long after JVM start this instance became ready (which is when the readiness probe starts
+ * passing, after warm-up) and answered its first question from a user - answers computed in the background, such as
+ * refreshed popular answers, don't count. Both are logged and published as
+ * {@code dataexploration.startup.*} metrics.
+ */
+@Service
+public class StartupTimer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimer.class);
+
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong firstAnswerMillis = new AtomicLong(-1);
+
+    public StartupTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("dataexploration.startup.ready", readyMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Time from JVM start until the application accepted traffic")
+                .register(meterRegistry);
+        TimeGauge.builder("dataexploration.startup.first.answer", firstAnswerMillis, TimeUnit.MILLISECONDS,
+                        AtomicLong::get)
+                .description("Time from JVM start until the first question was answered")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recordReady() {
+        readyMillis.set(millisSinceJvmStart());
+        LOGGER.info("Ready to accept traffic {} ms after JVM start", readyMillis.get());
+    }
+
+    public void recordAnswer() {
+        if (firstAnswerMillis.get() < 0 && firstAnswerMillis.compareAndSet(-1, millisSinceJvmStart())) {
+            LOGGER.info("First question answered {} ms after JVM start", firstAnswerMillis.get());
+        }
+    }
+
+    private static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
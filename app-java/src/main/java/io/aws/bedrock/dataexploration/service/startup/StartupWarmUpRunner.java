@@ -0,0 +1,101 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.startup;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.service.BedrockService;
+import io.aws.bedrock.dataexploration.service.DynamoDbService;
+import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Warms up the catalog, data source drivers and pools, and the Bedrock client before the application reports
+ * ready: Spring Boot only moves the readiness state to ACCEPTING_TRAFFIC once all runners have completed.
+ * Failures are logged but don't stop startup, so one unreachable data source can't keep the service down.
+ * <p>
+ * With {@code bedrock.data.exploration.exitAfterStartup=true} the application instead exits as soon as the
+ * context has started, which is used as the training run to build a class data sharing archive.
+ */
+@Service
+public class StartupWarmUpRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupWarmUpRunner.class);
+
+    private final ConfigurableApplicationContext applicationContext;
+    private final DataExplorationProperties dataExplorationProperties;
+    private final DynamoDbService dynamoDbService;
+    private final BedrockService bedrockService;
+    private final UserQueryExecutionService userQueryExecutionService;
+
+    public StartupWarmUpRunner(ConfigurableApplicationContext applicationContext,
+            DataExplorationProperties dataExplorationProperties, DynamoDbService dynamoDbService,
+            BedrockService bedrockService, UserQueryExecutionService userQueryExecutionService) {
+        this.applicationContext = applicationContext;
+        this.dataExplorationProperties = dataExplorationProperties;
+        this.dynamoDbService = dynamoDbService;
+        this.bedrockService = bedrockService;
+        this.userQueryExecutionService = userQueryExecutionService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (dataExplorationProperties.isExitAfterStartup()) {
+            LOGGER.info("Application started, exiting as requested by exitAfterStartup");
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+        if (!dataExplorationProperties.isWarmUpEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        ExecutorService warmUpPool = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            tasks.add(warmUp("Bedrock client", bedrockService::warmUp, warmUpPool));
+            for (DatabaseInformation databaseItem : dynamoDbService.getDatabaseItems()) {
+                tasks.add(warmUp(databaseItem.getDatabaseName(), () -> {
+                    try {
+                        userQueryExecutionService.warmUpDataSource(databaseItem);
+                    } catch (ClassNotFoundException e) {
+                        throw new RuntimeException(e);
+                    }
+                }, warmUpPool));
+            }
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                    .get(dataExplorationProperties.getWarmUpTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Warm-up did not finish within {} s, continuing startup",
+                    dataExplorationProperties.getWarmUpTimeoutSeconds());
+        } catch (Exception e) {
+            LOGGER.error("Error during warm-up", e);
+        } finally {
+            warmUpPool.shutdownNow();
+        }
+        LOGGER.info("Warm-up took {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private CompletableFuture<Void> warmUp(String name, Runnable task, ExecutorService warmUpPool) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            task.run();
+            LOGGER.info("Warmed up {} in {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }, warmUpPool).exceptionally(e -> {
+            LOGGER.warn("Could not warm up " + name, e);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.text;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reduces free text to the words that carry its meaning, for matching questions against each other and
+ * against database schemas without a model call.
+ * <p>
+ * Normalization lower-cases and strips accents and punctuation, drops filler words, maps a few common
+ * synonyms onto one word and trims plural endings, so that e.g. "top 10 customers by revenue" and
+ * "10 highest-revenue customers" end up with the same words. Numbers and negations ("not") are kept.
+ */
+public final class TextNormalizer {
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "of", "for", "by", "in", "on", "at",
+            "to", "from", "with", "and", "or", "is", "are", "was", "were", "be", "been", "do", "does", "did",
+            "what", "which", "who", "whom", "whose", "how", "show", "me", "list", "give", "get", "find", "tell",
+            "please", "i", "we", "our", "us", "my", "you", "your", "can", "could", "would", "all", "there", "that",
+            "this", "these", "those", "it", "its", "their", "them", "they", "have", "has", "had", "per", "each",
+            "every");
+    private static final Map<String, String> SYNONYMS = Map.ofEntries(
+            Map.entry("highest", "top"), Map.entry("largest", "top"), Map.entry("biggest", "top"),
+            Map.entry("best", "top"), Map.entry("most", "top"), Map.entry("greatest", "top"),
+            Map.entry("lowest", "bottom"), Map.entry("smallest", "bottom"), Map.entry("least", "bottom"),
+            Map.entry("worst", "bottom"), Map.entry("fewest", "bottom"),
+            Map.entry("sales", "revenue"), Map.entry("income", "revenue"), Map.entry("turnover", "revenue"),
+            Map.entry("clients", "customer"), Map.entry("client", "customer"), Map.entry("buyers", "customer"),
+            Map.entry("buyer", "customer"), Map.entry("films", "movie"), Map.entry("film", "movie"),
+            Map.entry("count", "number"), Map.entry("many", "number"), Map.entry("total", "sum"),
+            Map.entry("average", "avg"), Map.entry("mean", "avg"), Map.entry("n't", "not"), Map.entry("no", "not"),
+            Map.entry("without", "not"), Map.entry("never", "not"));
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * @return the normalized words of the text, in order and with repeats
+     */
+    public static List<String> tokens(String text) {
+        String normalized = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}", "")
+                .replace("n't", " n't");
+        List<String> tokens = new ArrayList<>();
+        for (String word : normalized.split("[^\\p{L}\\p{N}']+")) {
+            String token = word.replace("'", "");
+            if (word.equals("n't")) {
+                token = "n't";
+            }
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            tokens.add(stem(SYNONYMS.getOrDefault(token, token)));
+        }
+        return tokens;
+    }
+
+    // Plural and possessive endings only; anything more aggressive starts merging unrelated words:
+    private static String stem(String token) {
+        if (token.length() > 4 && token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
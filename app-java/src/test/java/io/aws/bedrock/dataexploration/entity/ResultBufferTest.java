@@ -0,0 +1,112 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.entity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultBufferTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void keepsSmallResultsOnTheHeap() throws IOException {
+        ResultBuffer buffer = new ResultBuffer(1024 * 1024, spillDirectory);
+        List<List<String>> rows = rows(10);
+        rows.forEach(buffer::addRow);
+        buffer.finish();
+
+        assertFalse(buffer.isSpilled());
+        assertEquals(rows, toList(buffer));
+        assertEquals(0, spillFileCount());
+    }
+
+    @Test
+    void roundTripsSpilledRows() throws IOException {
+        ResultBuffer buffer = new ResultBuffer(200, spillDirectory);
+        List<List<String>> rows = rows(50);
+        rows.forEach(buffer::addRow);
+        buffer.finish();
+
+        assertTrue(buffer.isSpilled());
+        assertEquals(1, spillFileCount());
+        assertEquals(rows.size(), buffer.size());
+        assertEquals(rows, toList(buffer));
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), buffer.getRow(i));
+        }
+    }
+
+    @Test
+    void pagesAcrossTheHeapAndSpillBoundary() {
+        // Room for the first few rows only, so pages start on the heap and end in the file:
+        ResultBuffer buffer = new ResultBuffer(1000, spillDirectory);
+        List<List<String>> rows = rows(50);
+        rows.forEach(buffer::addRow);
+        buffer.finish();
+        assertTrue(buffer.isSpilled());
+
+        for (int from = 0; from < rows.size(); from++) {
+            assertEquals(rows.subList(from, Math.min(from + 7, rows.size())), toList(buffer.rows(from, 7)));
+        }
+        assertEquals(List.of(), toList(buffer.rows(60, 10)));
+        assertEquals(rows.subList(0, 3), toList(buffer.rows(-5, 3)));
+        assertEquals(List.of(), toList(buffer.rows(10, -1)));
+    }
+
+    @Test
+    void closeRemovesTheSpillFile() throws IOException {
+        ResultBuffer buffer = new ResultBuffer(0, spillDirectory);
+        rows(5).forEach(buffer::addRow);
+        buffer.finish();
+        assertEquals(1, spillFileCount());
+
+        buffer.close();
+
+        assertEquals(0, spillFileCount());
+        assertThrows(IllegalStateException.class, () -> buffer.getRow(0));
+    }
+
+    @Test
+    void rejectsRowsAfterFinish() {
+        ResultBuffer buffer = new ResultBuffer(0, spillDirectory);
+        buffer.finish();
+
+        assertThrows(IllegalStateException.class, () -> buffer.addRow(List.of("late")));
+    }
+
+    // Nulls, empty strings and multi-byte text, so every cell encoding is exercised on both sides of the spill:
+    private static List<List<String>> rows(int count) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(Arrays.asList(String.valueOf(i), i % 3 == 0 ? null : "", "Zoë 東京 " + i, "🎬"));
+        }
+        return rows;
+    }
+
+    private static List<List<String>> toList(Iterable<List<String>> rows) {
+        List<List<String>> list = new ArrayList<>();
+        rows.forEach(list::add);
+        return list;
+    }
+
+    private long spillFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+}
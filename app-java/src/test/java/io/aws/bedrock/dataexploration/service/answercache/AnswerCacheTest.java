@@ -0,0 +1,153 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.answercache;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.DbType;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerCacheTest {
+
+    // Counts decay from the moment a question is asked, so this is one ask more than the default minimum of 3:
+    private static final int POPULAR = 4;
+
+    @TempDir
+    Path spillDirectory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataExplorationProperties properties = new DataExplorationProperties();
+    private final DatabaseInformation database = database("sales", "CREATE TABLE orders (revenue numeric)");
+
+    @Test
+    void keepsAnswersOfPopularQuestionsOnly() {
+        AnswerCache answerCache = new AnswerCache(properties, meterRegistry);
+        ask(answerCache, "top customers", POPULAR);
+        ask(answerCache, "orders last week", 1);
+        answerCache.popularQuestions("sales");
+
+        QueryResult popular = result(10);
+        assertTrue(answerCache.store(database, "top customers", popular));
+        assertFalse(answerCache.store(database, "orders last week", result(10)));
+
+        assertSame(popular, answerCache.lookup(database, "top customers"));
+        assertTrue(answerCache.holds(popular));
+        assertNull(answerCache.lookup(database, "orders last week"));
+    }
+
+    @Test
+    void ignoresOnlyCaseSpacingAndTrailingPunctuation() {
+        AnswerCache answerCache = new AnswerCache(properties, meterRegistry);
+        ask(answerCache, "flights from Boston to Denver", POPULAR);
+        answerCache.popularQuestions("sales");
+        QueryResult queryResult = result(10);
+        assertTrue(answerCache.store(database, "flights from Boston to Denver", queryResult));
+
+        assertSame(queryResult, answerCache.lookup(database, "  Flights  from boston to DENVER?! "));
+        assertNull(answerCache.lookup(database, "flights to Boston from Denver"));
+        assertNull(answerCache.lookup(database, "flights from Boston to Denver yesterday"));
+    }
+
+    @Test
+    void missesAfterTheSchemaChanges() {
+        AnswerCache answerCache = new AnswerCache(properties, meterRegistry);
+        ask(answerCache, "top customers", POPULAR);
+        answerCache.popularQuestions("sales");
+        assertTrue(answerCache.store(database, "top customers", result(10)));
+
+        DatabaseInformation changed = database("sales", "CREATE TABLE orders (revenue numeric, region text)");
+        assertNull(answerCache.lookup(changed, "top customers"));
+    }
+
+    @Test
+    void evictsTheLeastAskedAnswersOverBudget() {
+        // Room for two answers of this size, not three:
+        long answerBytes = result(10).getValues().getHeapBytes();
+        properties.setAnswerCacheMaxBytes(answerBytes * 5 / 2);
+        AnswerCache answerCache = new AnswerCache(properties, meterRegistry);
+        DatabaseInformation movies = database("movies", "(:Movie {title})");
+        ask(answerCache, "top customers", POPULAR + 2);
+        ask(answerCache, "revenue by region", POPULAR);
+        for (int i = 0; i < POPULAR + 1; i++) {
+            answerCache.lookup(movies, "top movies");
+        }
+        answerCache.popularQuestions("sales");
+        answerCache.popularQuestions("movies");
+
+        assertTrue(answerCache.store(database, "top customers", result(10)));
+        assertTrue(answerCache.store(movies, "top movies", result(10)));
+        // The budget is shared by all databases, and this is the least asked question of them all:
+        assertFalse(answerCache.store(database, "revenue by region", result(10)));
+
+        assertNull(answerCache.lookup(database, "revenue by region"));
+        assertEquals(1.0, meterRegistry.get("dataexploration.answer.cache.evictions").tag("database", "sales")
+                .counter().count());
+        assertNotNull(answerCache.lookup(database, "top customers"));
+        assertNotNull(answerCache.lookup(movies, "top movies"));
+    }
+
+    @Test
+    void doesNotKeepResultsThatSpilledToDisk() {
+        AnswerCache answerCache = new AnswerCache(properties, meterRegistry);
+        ask(answerCache, "all orders", POPULAR);
+        answerCache.popularQuestions("sales");
+
+        ResultBuffer values = new ResultBuffer(100, spillDirectory);
+        for (int i = 0; i < 100; i++) {
+            values.addRow(List.of("order " + i));
+        }
+        values.finish();
+
+        assertFalse(answerCache.store(database, "all orders", new QueryResult(values, new LinkedList<>())));
+        values.close();
+    }
+
+    @Test
+    void answersNothingWhenDisabled() {
+        properties.setAnswerCacheEnabled(false);
+        AnswerCache answerCache = new AnswerCache(properties, meterRegistry);
+        ask(answerCache, "top customers", POPULAR);
+        answerCache.popularQuestions("sales");
+
+        assertFalse(answerCache.store(database, "top customers", result(10)));
+        assertNull(answerCache.lookup(database, "top customers"));
+    }
+
+    private void ask(AnswerCache answerCache, String question, int times) {
+        for (int i = 0; i < times; i++) {
+            answerCache.lookup(database, question);
+        }
+    }
+
+    private QueryResult result(int rowCount) {
+        ResultBuffer values = new ResultBuffer(1024 * 1024, spillDirectory);
+        for (int i = 0; i < rowCount; i++) {
+            values.addRow(List.of("customer " + i, String.valueOf(i * 100)));
+        }
+        values.finish();
+        return new QueryResult(values, new LinkedList<>(List.of("customer", "revenue")));
+    }
+
+    private static DatabaseInformation database(String name, String schema) {
+        DatabaseInformation database = new DatabaseInformation();
+        database.setDatabaseName(name);
+        database.setDbType(DbType.POSTGRESQL);
+        database.setSchema(schema);
+        return database;
+    }
+}
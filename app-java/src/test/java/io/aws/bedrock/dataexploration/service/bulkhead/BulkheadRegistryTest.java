@@ -0,0 +1,185 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.bulkhead;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties.BulkheadSettings;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.DbType;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationReason;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.cancellation.QueryCancelledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CancellationService cancellationService = new CancellationService(meterRegistry);
+    private final ExecutorService waiters = Executors.newCachedThreadPool();
+    private final List<BulkheadRegistry.Permit> held = new ArrayList<>();
+
+    @AfterEach
+    void releasePermits() {
+        held.forEach(BulkheadRegistry.Permit::close);
+        waiters.shutdownNow();
+    }
+
+    @Test
+    void grantsSparePermitsByWeight() throws Exception {
+        // One reserved permit each, and three spare ones that "busy" holds to begin with:
+        BulkheadRegistry registry = registry(3, Map.of("heavy", settings(3.0), "light", settings(1.0),
+                "busy", settings(1.0)));
+        DatabaseInformation heavy = database("heavy");
+        DatabaseInformation light = database("light");
+        DatabaseInformation busy = database("busy");
+        hold(registry.acquire(heavy, CancellationToken.NONE));
+        hold(registry.acquire(light, CancellationToken.NONE));
+        hold(registry.acquire(busy, CancellationToken.NONE));
+        List<BulkheadRegistry.Permit> spare = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            spare.add(registry.acquire(busy, CancellationToken.NONE));
+        }
+
+        CompletableFuture<BulkheadRegistry.Permit> lightWaiter = acquireLater(registry, light);
+        awaitQueued(light, 1);
+        CompletableFuture<BulkheadRegistry.Permit> heavyWaiter1 = acquireLater(registry, heavy);
+        awaitQueued(heavy, 1);
+        CompletableFuture<BulkheadRegistry.Permit> heavyWaiter2 = acquireLater(registry, heavy);
+        awaitQueued(heavy, 2);
+
+        // Although "light" queued first, "heavy" has borrowed less for its weight until it holds two spare permits:
+        spare.get(0).close();
+        hold(heavyWaiter1.get(5, TimeUnit.SECONDS));
+        spare.get(1).close();
+        hold(heavyWaiter2.get(5, TimeUnit.SECONDS));
+        assertFalse(lightWaiter.isDone());
+
+        spare.get(2).close();
+        hold(lightWaiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givesAFreedReservedPermitToItsOwnBulkhead() throws Exception {
+        BulkheadRegistry registry = registry(0, Map.of());
+        DatabaseInformation database = database("own");
+        List<BulkheadRegistry.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(registry.acquire(database, CancellationToken.NONE));
+        }
+        CompletableFuture<BulkheadRegistry.Permit> waiter = acquireLater(registry, database);
+        awaitQueued(database, 1);
+
+        permits.get(0).close();
+        hold(waiter.get(5, TimeUnit.SECONDS));
+        permits.subList(1, 4).forEach(this::hold);
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        BulkheadSettings settings = settings(1.0);
+        settings.setMaxQueued(0);
+        BulkheadRegistry registry = registry(0, Map.of("full", settings));
+        DatabaseInformation database = database("full");
+        hold(registry.acquire(database, CancellationToken.NONE));
+
+        BulkheadRejectedException e = assertThrows(BulkheadRejectedException.class,
+                () -> registry.acquire(database, CancellationToken.NONE));
+        assertEquals("POSTGRESQL/full", e.getBulkheadName());
+        assertEquals(1.0, meterRegistry.get("dataexploration.bulkhead.rejected").tag("reason", "queue_full")
+                .counter().count());
+    }
+
+    @Test
+    void rejectsWhenNoPermitFreesUpInTime() {
+        BulkheadSettings settings = settings(1.0);
+        settings.setMaxWait(Duration.ofMillis(50));
+        BulkheadRegistry registry = registry(0, Map.of("slow", settings));
+        DatabaseInformation database = database("slow");
+        hold(registry.acquire(database, CancellationToken.NONE));
+
+        assertThrows(BulkheadRejectedException.class, () -> registry.acquire(database, CancellationToken.NONE));
+        assertEquals(0.0, queued(database));
+    }
+
+    @Test
+    void stopsWaitingWhenTheQuestionIsCancelled() throws Exception {
+        BulkheadRegistry registry = registry(0, Map.of("cancelled", settings(1.0)));
+        DatabaseInformation database = database("cancelled");
+        hold(registry.acquire(database, CancellationToken.NONE));
+        CancellationToken cancellationToken = cancellationService.newToken();
+        long start = System.nanoTime();
+        CompletableFuture<BulkheadRegistry.Permit> waiter = CompletableFuture.supplyAsync(
+                () -> registry.acquire(database, cancellationToken), waiters);
+        awaitQueued(database, 1);
+
+        cancellationToken.cancel(CancellationReason.CLIENT_DISCONNECTED);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(QueryCancelledException.class, e.getCause());
+        // Well before the ten second maximum wait of these tests:
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0.0, queued(database));
+    }
+
+    private BulkheadRegistry registry(int sharedCapacity, Map<String, BulkheadSettings> bulkheads) {
+        DataExplorationProperties properties = new DataExplorationProperties();
+        properties.setBulkheadSharedCapacity(sharedCapacity);
+        properties.setBulkheads(bulkheads);
+        return new BulkheadRegistry(properties, meterRegistry);
+    }
+
+    private CompletableFuture<BulkheadRegistry.Permit> acquireLater(BulkheadRegistry registry,
+            DatabaseInformation database) {
+        return CompletableFuture.supplyAsync(() -> registry.acquire(database, CancellationToken.NONE), waiters);
+    }
+
+    private void awaitQueued(DatabaseInformation database, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(database) < expected) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for queued queries");
+            Thread.sleep(5);
+        }
+    }
+
+    private double queued(DatabaseInformation database) {
+        return meterRegistry.get("dataexploration.bulkhead.queued")
+                .tag("bulkhead", "POSTGRESQL/" + database.getDatabaseName()).gauge().value();
+    }
+
+    private void hold(BulkheadRegistry.Permit permit) {
+        held.add(permit);
+    }
+
+    private static BulkheadSettings settings(double weight) {
+        BulkheadSettings settings = new BulkheadSettings();
+        settings.setMaxConcurrent(1);
+        settings.setMaxWait(Duration.ofSeconds(10));
+        settings.setWeight(weight);
+        return settings;
+    }
+
+    private static DatabaseInformation database(String name) {
+        DatabaseInformation database = new DatabaseInformation();
+        database.setDatabaseName(name);
+        database.setDbType(DbType.POSTGRESQL);
+        return database;
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.queryexecution;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostgreSqlEndpointGroupTest {
+
+    private static final long MAX_LAG_MILLIS = 1000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FakePool primary = new FakePool("primary", 0);
+    private final FakePool replica = new FakePool("replica-1", 100);
+
+    @Test
+    void keepsAnExhaustedReplicaInRotation() throws SQLException {
+        PostgreSqlEndpointGroup group = group(false);
+        group.checkReplicas();
+
+        replica.state = State.EXHAUSTED;
+        group.checkReplicas();
+        assertEquals(100.0, replicaLag("sales-false"));
+
+        replica.state = State.UP;
+        try (PostgreSqlEndpointGroup.Lease lease = group.lease()) {
+            assertSame(replica.connection, lease.connection());
+        }
+        assertEquals(1.0, queries("replica"));
+    }
+
+    @Test
+    void takesAReplicaThatFailsToConnectOutOfRotation() throws SQLException {
+        PostgreSqlEndpointGroup group = group(true);
+        replica.state = State.DOWN;
+        group.checkReplicas();
+
+        replica.state = State.UP;
+        try (PostgreSqlEndpointGroup.Lease lease = group.lease()) {
+            assertSame(primary.connection, lease.connection());
+        }
+        assertEquals(1.0, queries("primary_fallback"));
+        assertEquals(Double.NaN, replicaLag("sales-true"));
+
+        group.checkReplicas();
+        try (PostgreSqlEndpointGroup.Lease lease = group.lease()) {
+            assertSame(replica.connection, lease.connection());
+        }
+    }
+
+    @Test
+    void failsRatherThanFallingBackWhenTheReplicaIsBusy() throws SQLException {
+        PostgreSqlEndpointGroup group = group(true);
+        group.checkReplicas();
+        replica.state = State.EXHAUSTED;
+
+        assertThrows(SQLTransientConnectionException.class, group::lease);
+        assertEquals(0, primary.connectionsOpened);
+
+        // Still in rotation once it has a free connection again:
+        replica.state = State.UP;
+        try (PostgreSqlEndpointGroup.Lease lease = group.lease()) {
+            assertSame(replica.connection, lease.connection());
+        }
+    }
+
+    @Test
+    void avoidsAReplicaThatLagsTooFarBehind() throws SQLException {
+        replica.lagMillis = 5 * MAX_LAG_MILLIS;
+        PostgreSqlEndpointGroup group = group(false);
+        group.checkReplicas();
+
+        assertThrows(SQLException.class, group::lease);
+
+        PostgreSqlEndpointGroup withFallback = group(true);
+        withFallback.checkReplicas();
+        try (PostgreSqlEndpointGroup.Lease lease = withFallback.lease()) {
+            assertSame(primary.connection, lease.connection());
+        }
+    }
+
+    private PostgreSqlEndpointGroup group(boolean primaryFallback) {
+        return new PostgreSqlEndpointGroup("sales-" + primaryFallback, primary, List.of(replica), MAX_LAG_MILLIS,
+                primaryFallback, meterRegistry);
+    }
+
+    private double replicaLag(String databaseName) {
+        return meterRegistry.get("dataexploration.postgres.replica.lag").tag("database", databaseName)
+                .tag("endpoint", "replica-1:5432/sales").gauge().value();
+    }
+
+    private double queries(String target) {
+        return meterRegistry.get("dataexploration.postgres.queries").tag("target", target).counters().stream()
+                .mapToDouble(Counter::count).sum();
+    }
+
+    private enum State { UP, EXHAUSTED, DOWN }
+
+    /**
+     * A pool that never connects anywhere, failing the way Hikari does when it's exhausted or can't connect.
+     */
+    private static final class FakePool extends HikariDataSource {
+
+        private final Connection connection = mock(Connection.class);
+        private volatile State state = State.UP;
+        private volatile long lagMillis;
+        private int connectionsOpened;
+
+        FakePool(String host, long lagMillis) {
+            setJdbcUrl("jdbc:postgresql://" + host + ":5432/sales?ssl=true");
+            this.lagMillis = lagMillis;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            switch (state) {
+                case EXHAUSTED -> throw new SQLTransientConnectionException(
+                        "pool - Connection is not available, request timed out after 5000ms.");
+                case DOWN -> throw new SQLTransientConnectionException("pool - Connection is not available",
+                        new ConnectException("Connection refused"));
+                default -> {
+                    connectionsOpened++;
+                    Statement statement = mock(Statement.class);
+                    ResultSet resultSet = mock(ResultSet.class);
+                    when(connection.createStatement()).thenReturn(statement);
+                    when(statement.executeQuery(anyString())).thenReturn(resultSet);
+                    when(resultSet.next()).thenReturn(true);
+                    when(resultSet.getLong(1)).thenReturn(lagMillis);
+                    return connection;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.questioncache;
+
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QuestionIndexTest {
+
+    private static final double THRESHOLD = 0.8;
+    private static final String SCHEMA_HASH = "schema-1";
+
+    @Test
+    void findsTheSameQuestionInOtherWords() {
+        QuestionIndex index = new QuestionIndex(10);
+        put(index, "top 10 customers by revenue", "SELECT 1");
+
+        QuestionIndex.Match match = find(index, "Which are the 10 highest-revenue clients?");
+
+        assertNotNull(match);
+        assertEquals(1.0, match.similarity());
+        assertEquals("SELECT 1", match.entry().bedrockResult().getQuery());
+    }
+
+    @Test
+    void matchesAtTheThresholdAndMissesBelowIt() {
+        QuestionIndex index = new QuestionIndex(10);
+        // Normalizes to {top, customer, revenue, europe}:
+        put(index, "top customers by revenue in Europe", "SELECT 1");
+
+        // One extra word: 4 of 5 words shared.
+        QuestionIndex.Match atThreshold = find(index, "top customers by revenue in Europe lately");
+        assertNotNull(atThreshold);
+        assertEquals(0.8, atThreshold.similarity(), 1e-9);
+        // Two extra words: 4 of 6 words shared.
+        assertNull(find(index, "top customers by revenue in Europe last year"));
+    }
+
+    @Test
+    void missesQuestionsThatDifferInANumberOrNegation() {
+        QuestionIndex index = new QuestionIndex(10);
+        put(index, "top 10 customers by revenue", "SELECT 1");
+        put(index, "customers with orders", "SELECT 2");
+
+        assertNull(find(index, "top 20 customers by revenue"));
+        assertNull(find(index, "customers without orders"));
+    }
+
+    @Test
+    void dropsEntriesGeneratedForAnotherSchema() {
+        QuestionIndex index = new QuestionIndex(10);
+        put(index, "top 10 customers by revenue", "SELECT 1");
+
+        assertNull(index.find(QuestionSignature.of("top 10 customers by revenue"), "schema-2", THRESHOLD));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void replacesASimilarEntry() {
+        QuestionIndex index = new QuestionIndex(10);
+        put(index, "top 10 customers by revenue", "SELECT 1");
+        put(index, "10 highest-revenue customers", "SELECT 2");
+
+        assertEquals(1, index.size());
+        assertEquals("SELECT 2", find(index, "top 10 customers by revenue").entry().bedrockResult().getQuery());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        QuestionIndex index = new QuestionIndex(2);
+        put(index, "top 10 customers by revenue", "SELECT 1");
+        put(index, "number of movies per actor", "SELECT 2");
+        // Using the first entry makes the second one the least recently used:
+        assertNotNull(find(index, "top 10 customers by revenue"));
+        put(index, "average order value by country", "SELECT 3");
+
+        assertEquals(2, index.size());
+        assertEquals(1, index.evictions());
+        assertNotNull(find(index, "top 10 customers by revenue"));
+        assertNull(find(index, "number of movies per actor"));
+    }
+
+    private static void put(QuestionIndex index, String question, String query) {
+        index.put(question, QuestionSignature.of(question), SCHEMA_HASH, new BedrockResult("", query), THRESHOLD);
+    }
+
+    private static QuestionIndex.Match find(QuestionIndex index, String question) {
+        return index.find(QuestionSignature.of(question), SCHEMA_HASH, THRESHOLD);
+    }
+}
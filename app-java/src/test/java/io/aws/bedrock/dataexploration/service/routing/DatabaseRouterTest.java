@@ -0,0 +1,188 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+package io.aws.bedrock.dataexploration.service.routing;
+
+import io.aws.bedrock.dataexploration.config.DataExplorationProperties;
+import io.aws.bedrock.dataexploration.entity.BedrockResult;
+import io.aws.bedrock.dataexploration.entity.DatabaseInformation;
+import io.aws.bedrock.dataexploration.entity.DbType;
+import io.aws.bedrock.dataexploration.entity.QueryResult;
+import io.aws.bedrock.dataexploration.entity.ResultBuffer;
+import io.aws.bedrock.dataexploration.service.DynamoDbService;
+import io.aws.bedrock.dataexploration.service.UserQueryExecutionService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationReason;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationService;
+import io.aws.bedrock.dataexploration.service.cancellation.CancellationToken;
+import io.aws.bedrock.dataexploration.service.cancellation.QueryCancelledException;
+import io.aws.bedrock.dataexploration.service.startup.StartupTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DatabaseRouterTest {
+
+    private static final DatabaseInformation SALES = database("sales",
+            "CREATE TABLE orders (order_id int, customer_name varchar, revenue numeric, ordered_at date)");
+    private static final DatabaseInformation MOVIES = database("movies",
+            "(:Movie {title, released})<-[:ACTED_IN]-(:Person {name})");
+    private static final DatabaseInformation INVENTORY = database("inventory",
+            "CREATE TABLE stock (warehouse varchar, product varchar, quantity int)");
+
+    @TempDir
+    Path spillDirectory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DynamoDbService dynamoDbService = mock(DynamoDbService.class);
+    private final UserQueryExecutionService userQueryExecutionService = mock(UserQueryExecutionService.class);
+    private final DataExplorationProperties properties = new DataExplorationProperties();
+    // The reason each database's attempt was cancelled for, if it was:
+    private final Map<String, CancellationReason> cancelled = new ConcurrentHashMap<>();
+    private DatabaseRouter router;
+
+    @AfterEach
+    void shutDown() {
+        if (router != null) {
+            router.destroy();
+        }
+    }
+
+    @Test
+    void returnsTheFirstAnswerWithRowsAndCancelsTheOthers() {
+        // Ask all three databases, whatever their scores:
+        properties.setRoutingMinScoreRatio(0);
+        answers(Map.of("sales", 0, "movies", 2));
+        router = router(SALES, MOVIES, INVENTORY);
+
+        long start = System.nanoTime();
+        QueryResult queryResult = router.answer("revenue of orders by customer", newToken());
+
+        assertEquals("movies", queryResult.getDatabaseName());
+        assertEquals(2, queryResult.getValues().size());
+        // The inventory query never finishes by itself, so answering means it was cut short:
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        awaitCancelled("inventory");
+        assertEquals(CancellationReason.SUPERSEDED, cancelled.get("inventory"));
+        assertEquals(1.0, meterRegistry.get("dataexploration.routing.answers").tag("rank", "2").counter().count());
+    }
+
+    @Test
+    void fallsBackToTheBestRankedEmptyAnswer() {
+        properties.setRoutingMinScoreRatio(0);
+        answers(Map.of("sales", 0, "movies", 0, "inventory", 0));
+        router = router(SALES, MOVIES, INVENTORY);
+
+        QueryResult queryResult = router.answer("revenue of orders by customer", newToken());
+
+        assertEquals("sales", queryResult.getDatabaseName());
+        assertEquals(0, queryResult.getValues().size());
+    }
+
+    @Test
+    void asksOnlyDatabasesScoringCloseToTheBestMatch() {
+        router = router(SALES, MOVIES, INVENTORY);
+
+        List<DatabaseInformation> candidates = router.selectCandidates("revenue of orders by customer");
+
+        assertEquals(List.of(SALES), candidates);
+    }
+
+    @Test
+    void rejectsQuestionsThatMatchNoSchema() {
+        router = router(SALES, MOVIES, INVENTORY);
+
+        assertThrows(NoMatchingDatabaseException.class, () -> router.answer("xyzzy plugh", newToken()));
+        verifyNoInteractions(userQueryExecutionService);
+    }
+
+    @Test
+    void rejectsQuestionsWhenNoDatabaseIsRegistered() {
+        router = router();
+
+        assertThrows(NoMatchingDatabaseException.class,
+                () -> router.selectCandidates("revenue of orders by customer"));
+    }
+
+    private DatabaseRouter router(DatabaseInformation... databases) {
+        when(dynamoDbService.getDatabaseItems()).thenReturn(List.of(databases));
+        return new DatabaseRouter(dynamoDbService, userQueryExecutionService, new CancellationService(meterRegistry),
+                meterRegistry, new StartupTimer(meterRegistry), properties);
+    }
+
+    /**
+     * Databases in {@code rowCounts} answer with that many rows; the others block until their attempt is
+     * cancelled.
+     */
+    private void answers(Map<String, Integer> rowCounts) {
+        when(userQueryExecutionService.generateQuery(any(), anyString(), any())).thenAnswer(invocation ->
+                new BedrockResult("", "query for " + invocation.<DatabaseInformation>getArgument(0)
+                        .getDatabaseName()));
+        when(userQueryExecutionService.executeGeneratedQuery(any(), anyString(), any(), any())).thenAnswer(
+                invocation -> {
+                    String databaseName = invocation.<DatabaseInformation>getArgument(0).getDatabaseName();
+                    CancellationToken attemptToken = invocation.getArgument(3);
+                    Integer rowCount = rowCounts.get(databaseName);
+                    if (rowCount == null) {
+                        CountDownLatch aborted = new CountDownLatch(1);
+                        try (CancellationToken.Registration registration = attemptToken.onCancel("query",
+                                aborted::countDown)) {
+                            aborted.await(10, TimeUnit.SECONDS);
+                        }
+                    }
+                    try {
+                        attemptToken.throwIfCancelled();
+                    } catch (QueryCancelledException e) {
+                        cancelled.put(databaseName, e.getReason());
+                        throw e;
+                    }
+                    return result(databaseName, rowCount == null ? 0 : rowCount);
+                });
+    }
+
+    private QueryResult result(String databaseName, int rowCount) {
+        ResultBuffer values = new ResultBuffer(1024 * 1024, spillDirectory);
+        for (int i = 0; i < rowCount; i++) {
+            values.addRow(List.of(databaseName + " " + i));
+        }
+        values.finish();
+        QueryResult queryResult = new QueryResult(values, new LinkedList<>(List.of("value")));
+        queryResult.setDatabaseName(databaseName);
+        return queryResult;
+    }
+
+    private void awaitCancelled(String databaseName) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!cancelled.containsKey(databaseName) && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private CancellationToken newToken() {
+        return new CancellationService(meterRegistry).newToken();
+    }
+
+    private static DatabaseInformation database(String name, String schema) {
+        DatabaseInformation database = new DatabaseInformation();
+        database.setDatabaseName(name);
+        database.setDbType(DbType.POSTGRESQL);
+        database.setSchema(schema);
+        return database;
+    }
+}
@@ -8,6 +8,7 @@ import * as cdk from "aws-cdk-lib";
 import * as ddb from "aws-cdk-lib/aws-dynamodb";
 import * as ec2 from "aws-cdk-lib/aws-ec2";
 import * as iam from "aws-cdk-lib/aws-iam";
+import * as s3 from "aws-cdk-lib/aws-s3";
 import { Runtime } from "aws-cdk-lib/aws-lambda";
 import { NodejsFunction } from "aws-cdk-lib/aws-lambda-nodejs";
 import * as cr from "aws-cdk-lib/custom-resources";
@@ -43,6 +44,8 @@ export interface DataExplorationStackProps extends cdk.StackProps {
  */
 export class CdkStack extends cdk.Stack {
   private dataSourceTable: ddb.ITable;
+  private jobTable: ddb.ITable;
+  private jobResultBucket: s3.IBucket;
 
   constructor(scope: Construct, id: string, props?: DataExplorationStackProps) {
     super(scope, id, props);
@@ -58,6 +61,31 @@ export class CdkStack extends cdk.Stack {
       partitionKey: { name: ddbPartitionKey, type: ddb.AttributeType.STRING },
       removalPolicy: cdk.RemovalPolicy.DESTROY,
     });
+    // Metadata of asynchronous question jobs, expired via TTL after the app's retention period:
+    this.jobTable = new ddb.Table(this, "JobTable", {
+      partitionKey: { name: "jobId", type: ddb.AttributeType.STRING },
+      timeToLiveAttribute: "expiresAt",
+      billingMode: ddb.BillingMode.PAY_PER_REQUEST,
+      removalPolicy: cdk.RemovalPolicy.DESTROY,
+    });
+    // Finished job results, shared by all app instances and expired after the app's default 24h retention:
+    this.jobResultBucket = new s3.Bucket(this, "JobResultBucket", {
+      blockPublicAccess: {
+        blockPublicAcls: true,
+        blockPublicPolicy: true,
+        ignorePublicAcls: true,
+        restrictPublicBuckets: true,
+      },
+      enforceSSL: true,
+      lifecycleRules: [{ expiration: cdk.Duration.days(1) }],
+      removalPolicy: cdk.RemovalPolicy.DESTROY,
+    });
+    NagSuppressions.addResourceSuppressions(this.jobResultBucket, [
+      {
+        id: "AwsSolutions-S1",
+        reason: "No need to log access to this bucket: would introduce pointless extra buckets",
+      },
+    ]);
     const loaderRole = new iam.Role(this, "DataLoaderRole", {
       assumedBy: new iam.ServicePrincipal("lambda.amazonaws.com"),
       managedPolicies: [
@@ -130,6 +158,8 @@ export class CdkStack extends cdk.Stack {
       "Orchestrator",
       {
         dataSourceTableName: this.dataSourceTable.tableName,
+        jobTableName: this.jobTable.tableName,
+        jobResultBucketName: this.jobResultBucket.bucketName,
         securityGroups: [vpcInfra.dbSecurityGroup],
         vpc: vpcInfra.vpc,
         vpcSubnets: { subnetType: ec2.SubnetType.PRIVATE_WITH_EGRESS },
@@ -137,16 +167,24 @@ export class CdkStack extends cdk.Stack {
     );
 
     this.dataSourceTable.grantReadData(orchestrator.principal);
+    this.jobTable.grantReadWriteData(orchestrator.principal);
+    this.jobResultBucket.grantReadWrite(orchestrator.principal);
     NagSuppressions.addResourceSuppressions(
       orchestrator.principal,
       [
         {
           id: "AwsSolutions-IAM5",
-          reason: "Invoke any Bedrock model and log any metrics",
+          reason: "Invoke any Bedrock model, log any metrics, and read and write any job result",
           appliesTo: [
             { regex: `/^Resource::arn:<AWS::Partition>:bedrock:<AWS::Region>:.*/` },
             "Resource::*",
             { regex: `/^Resource::arn:<AWS::Partition>:logs:<AWS::Region>:<AWS::AccountId>:.*/` },
+            "Action::s3:Abort*",
+            "Action::s3:DeleteObject*",
+            "Action::s3:GetBucket*",
+            "Action::s3:GetObject*",
+            "Action::s3:List*",
+            { regex: "/^Resource::<JobResultBucket.*\\.Arn>/*/" },
           ],
         },
       ],
@@ -16,6 +16,14 @@ import { Construct } from "constructs";
  */
 export interface IDataExplorationOrchestratorProps {
   dataSourceTableName: string;
+  /**
+   * DynamoDB table (partition key `jobId`) to store asynchronous question job metadata
+   */
+  jobTableName: string;
+  /**
+   * S3 bucket to store finished job results in, readable by every app instance
+   */
+  jobResultBucketName: string;
   securityGroups: ec2.ISecurityGroup[];
   vpc: ec2.IVpc;
   vpcSubnets: ec2.SubnetSelection;
@@ -28,6 +28,8 @@ export class DataExplorationOrchestratorJava extends Construct implements IDataE
     const stack = cdk.Stack.of(this);
 
     const appDir = path.join(__dirname, "..", "..", "..", "app-java");
+    // Opt in with `npx cdk deploy -c fastStartup=true` to build with Spring AOT and a CDS archive:
+    const fastStartup = String(this.node.tryGetContext("fastStartup")) === "true";
     console.log("Building Java application...");
     console.log(
       execSync(
@@ -37,13 +39,14 @@ export class DataExplorationOrchestratorJava extends Construct implements IDataE
           "mvn install:install-file  -Dfile=lib/AthenaJDBC42-2.1.1.1000.jar  -DgroupId=Athena  -DartifactId=AthenaJDBC42  -Dversion=2.1.1.1000  -Dpackaging=jar  -DgeneratePom=true",
           // Then install other deps & build:
           "mvn install",
-          "mvn clean package",
+          fastStartup ? "mvn -Pfast-startup clean package" : "mvn clean package",
         ].join("&&"),
         { encoding: "utf-8", cwd: appDir }
       )
     );
     const appImage = new assets.DockerImageAsset(this, "ImageAssets", {
       directory: appDir,
+      file: fastStartup ? "Dockerfile.fast-startup" : "Dockerfile",
       platform: assets.Platform.LINUX_AMD64,
     });
 
@@ -127,6 +130,8 @@ export class DataExplorationOrchestratorJava extends Construct implements IDataE
         imageConfiguration: { port: 8080 },
         asset: appImage,
       }),
+      // Only route traffic once startup warm-up has completed:
+      healthCheck: apprunner.HealthCheck.http({ path: "/actuator/health/readiness" }),
       accessRole: appRunnerEcrAccessRole,
       instanceRole: this.appRole,
       vpcConnector: appVpcConnector,
@@ -147,6 +152,14 @@ export class DataExplorationOrchestratorJava extends Construct implements IDataE
       "BEDROCK_DATA_EXPLORATION_DYNAMO_TABLE_NAME",
       props.dataSourceTableName
     );
+    this.appService.addEnvironmentVariable(
+      "BEDROCK_DATA_EXPLORATION_JOB_TABLE_NAME",
+      props.jobTableName
+    );
+    this.appService.addEnvironmentVariable(
+      "BEDROCK_DATA_EXPLORATION_JOB_RESULT_BUCKET",
+      props.jobResultBucketName
+    );
   }
 
   get principal(): iam.IRole {
@@ -0,0 +1,24 @@
+-- Sample retail data for load tests, matching the schema registered by LoadTestSeeder.
+CREATE TABLE customer (customer_id integer PRIMARY KEY, name text, country text, signed_up date);
+CREATE TABLE product (product_id integer PRIMARY KEY, name text, category text, price numeric(10, 2));
+CREATE TABLE orders (order_id integer PRIMARY KEY, customer_id integer REFERENCES customer,
+    product_id integer REFERENCES product, quantity integer, ordered_at timestamp);
+
+INSERT INTO customer
+SELECT i, 'Customer ' || i, (ARRAY['DE', 'FR', 'GB', 'US', 'JP', 'BR'])[1 + i % 6],
+       date '2015-01-01' + (i % 3000)
+FROM generate_series(1, 20000) AS i;
+
+INSERT INTO product
+SELECT i, 'Product ' || i, (ARRAY['Books', 'Garden', 'Toys', 'Electronics', 'Grocery'])[1 + i % 5],
+       round((5 + (i * 37 % 995))::numeric, 2)
+FROM generate_series(1, 2000) AS i;
+
+INSERT INTO orders
+SELECT i, 1 + (i * 7919) % 20000, 1 + (i * 104729) % 2000, 1 + i % 5,
+       timestamp '2020-01-01' + (i % 1461) * interval '1 day' + (i % 86400) * interval '1 second'
+FROM generate_series(1, 500000) AS i;
+
+CREATE INDEX orders_customer ON orders (customer_id);
+CREATE INDEX orders_ordered_at ON orders (ordered_at);
+ANALYZE;
@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Builds the application, starts it against local stand-ins for Bedrock, Secrets Manager, DynamoDB, PostgreSQL
+# and Neptune (Neo4j over Bolt), and drives it with LoadTestDriver. Extra arguments are passed to the driver,
+# e.g. ./run-load-test.sh --mode=form --concurrency=64 --duration=300
+#
+# BEDROCK_LATENCY sets the fake model latency (default lognormal:1500:0.4), BEDROCK_PREFILL_MS its extra
+# time per 1000 uncached prompt tokens (default 0), BEDROCK_PROMPT_CACHING whether the app marks the schema
+# prefix as cacheable (default false), and APP_JAVA_OPTIONS the JVM options of the application under test
+# (default -Xmx1g).
+set -euo pipefail
+cd "$(dirname "$0")"
+
+(cd ../app-java && ./mvnw -B -q package -DskipTests)
+JAR=$(ls ../app-java/target/data-exploration-*.jar | head -1)
+run_tool() {
+    local main=$1
+    shift
+    java -cp "$JAR" -Dloader.main="io.aws.bedrock.dataexploration.loadtest.$main" \
+        org.springframework.boot.loader.PropertiesLauncher "$@"
+}
+
+docker compose up -d --build --wait postgres
+docker compose up -d dynamodb neo4j fake-aws
+echo "Waiting for Neo4j..."
+until docker compose exec -T neo4j cypher-shell "RETURN 1" > /dev/null 2>&1; do sleep 2; done
+
+AWS_REGION=us-east-1 AWS_ACCESS_KEY_ID=loadtest AWS_SECRET_ACCESS_KEY=loadtest run_tool LoadTestSeeder
+
+docker compose --profile app up -d app
+echo "Waiting for the application..."
+until curl -sf http://localhost:8080/actuator/health/readiness > /dev/null; do sleep 2; done
+
+run_tool LoadTestDriver --base-url=http://localhost:8080 --questions=questions.jsonl "$@"